@@ -0,0 +1,69 @@
+package com.example.ayurlink.config;
+
+import com.example.ayurlink.model.Role;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * The signed-in user as resolved once at login by CustomUserDetailsService, kept in
+ * the security context and injected into controllers with @AuthenticationPrincipal.
+ * Patients, doctors and admins share their row id with users (joined inheritance),
+ * so the user id is also the patient / doctor / admin id.
+ */
+public class AccountPrincipal extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+    private final Role role;
+    private final String fullName;
+
+    public AccountPrincipal(Long userId, String username, String password, boolean enabled,
+                            Role role, String fullName) {
+        super(username, password != null ? password : "", enabled, true, true, true,
+                Collections.singleton(new SimpleGrantedAuthority(role.name())));
+        this.userId = userId;
+        this.role = role;
+        this.fullName = fullName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public Long getPatientId() {
+        return idFor(Role.ROLE_PATIENT, "Patient not found");
+    }
+
+    public Long getDoctorId() {
+        return idFor(Role.ROLE_DOCTOR, "Doctor not found");
+    }
+
+    public boolean isAdmin() {
+        return role == Role.ROLE_ADMIN || role == Role.ROLE_SUPER_ADMIN;
+    }
+
+    /**
+     * Same account with a new password hash (after an upgrade at login)
+     */
+    public AccountPrincipal withPassword(String newPassword) {
+        return new AccountPrincipal(userId, getUsername(), newPassword, isEnabled(), role, fullName);
+    }
+
+    private Long idFor(Role expected, String message) {
+        if (role != expected) {
+            throw new RuntimeException(message);
+        }
+        return userId;
+    }
+}
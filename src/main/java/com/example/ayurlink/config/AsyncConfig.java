@@ -0,0 +1,110 @@
+package com.example.ayurlink.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Slf4j
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    public static final String IMAGE_EXECUTOR = "imageTaskExecutor";
+    public static final String MAINTENANCE_EXECUTOR = "maintenanceTaskExecutor";
+    public static final String RECEIPT_EXECUTOR = "receiptTaskExecutor";
+    public static final String PASSWORD_EXECUTOR = "passwordHashingExecutor";
+
+    /**
+     * Boot only creates its default executor when no other Executor bean exists,
+     * so declare it here (built from spring.task.execution.*) alongside ours.
+     * It keeps serving @Async methods without a qualifier and async MVC responses.
+     */
+    @Primary
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * Image resizing is CPU and memory heavy, so it gets two threads and a bounded
+     * queue. Work that does not fit is dropped: a missing derivative falls back to
+     * the original and is regenerated on its next request.
+     */
+    @Bean(IMAGE_EXECUTOR)
+    public Executor imageTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("image-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Image queue full, skipping derivative generation"));
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Stores uploaded receipts once the payment has been saved. When all threads are
+     * busy and the queue is full, the submitting request thread stores the receipt
+     * itself, which slows uploads down instead of failing them. Queued receipts are
+     * finished on shutdown.
+     */
+    @Bean(RECEIPT_EXECUTOR)
+    public ThreadPoolTaskExecutor receiptTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("receipt-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(20);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Password hashing is deliberately CPU-bound, so at most this many hashes run at
+     * once (half the CPUs by default) and a morning login burst queues here instead of
+     * taking every core from page rendering. A full queue turns sign-ins away.
+     */
+    @Bean(PASSWORD_EXECUTOR)
+    public ThreadPoolTaskExecutor passwordHashingExecutor(PasswordHashingProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("password-");
+        executor.setCorePoolSize(properties.effectiveHashingThreads());
+        executor.setMaxPoolSize(properties.effectiveHashingThreads());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Storage migration and integrity scans walk the whole upload directory, so they
+     * run one at a time on a single low-priority thread, away from request threads
+     * and the scheduler. A run that is already queued makes another one pointless.
+     */
+    @Bean(MAINTENANCE_EXECUTOR)
+    public Executor maintenanceTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("maintenance-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(2);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Maintenance queue full, skipping task"));
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ayurlink.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-memory caches for the public catalogue (active treatments, treatments by id),
+ * the doctor list, doctors' compiled weekly schedules, doctors' earning summaries
+ * and the accounts looked up at sign-in. Entries expire after a
+ * TTL as a safety net; the services evict them explicitly when the underlying rows
+ * change. Hit/miss statistics are published as cache.* metrics on the actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ACTIVE_TREATMENTS = "activeTreatments";
+    public static final String TREATMENTS = "treatments";
+    public static final String DOCTORS = "doctors";
+    public static final String LOGIN_ACCOUNTS = "loginAccounts";
+    public static final String WEEKLY_SCHEDULES = "weeklySchedules";
+    public static final String EARNING_SUMMARIES = "earningSummaries";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${ayurlink.cache.max-size:500}") long maxSize,
+                                     @Value("${ayurlink.cache.ttl:10m}") Duration ttl,
+                                     @Value("${ayurlink.cache.login-ttl:60s}") Duration loginTtl,
+                                     @Value("${ayurlink.cache.schedule-ttl:10m}") Duration scheduleTtl,
+                                     @Value("${ayurlink.earnings.summary-ttl:30s}") Duration summaryTtl) {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        // Fixed names, so the caches exist (and are bound to metrics) at startup
+        caffeine.setCacheNames(List.of(ACTIVE_TREATMENTS, TREATMENTS, DOCTORS));
+        caffeine.setAllowNullValues(false);
+        // Password hashes and account status: short-lived, so a change made elsewhere applies within a minute
+        caffeine.registerCustomCache(LOGIN_ACCOUNTS, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(loginTtl)
+                .recordStats()
+                .build());
+        // Parsed availability per doctor, used by every slot lookup; evicted when it is saved here,
+        // the TTL bounds how long another node keeps an old schedule
+        caffeine.registerCustomCache(WEEKLY_SCHEDULES, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(scheduleTtl)
+                .recordStats()
+                .build());
+        // Doctor dashboard and earnings page totals; evicted when an earning changes, 0s disables
+        caffeine.registerCustomCache(EARNING_SUMMARIES, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(summaryTtl)
+                .recordStats()
+                .build());
+
+        // Defer puts and evictions to after commit, so a reader cannot re-cache the old rows
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+}
@@ -1,35 +1,103 @@
 package com.example.ayurlink.config;
 
+import com.example.ayurlink.model.Admin;
+import com.example.ayurlink.model.Doctor;
+import com.example.ayurlink.model.Patient;
+import com.example.ayurlink.model.Role;
 import com.example.ayurlink.model.User;
 import com.example.ayurlink.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.util.Optional;
 
+/**
+ * Sign-in lookups, served from the loginAccounts cache so a login burst does not
+ * query the users table per attempt; services changing a password, username or
+ * active flag evict it. Evictions are local: another node keeps accepting the old
+ * password (or a deactivated account) until its entry expires after
+ * ayurlink.cache.login-ttl. The principal it builds (AccountPrincipal) carries the
+ * user id, role and name, so controllers need no lookup of their own.
+ * Implementing UserDetailsPasswordService lets Spring Security store an upgraded
+ * hash after a successful login.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
 
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        Cache cache = cacheManager.getCache(CacheConfig.LOGIN_ACCOUNTS);
+        LoginAccount account = cache != null ? cache.get(username, LoginAccount.class) : null;
+        if (account == null) {
+            account = userRepository.findByUsername(username)
+                    .map(LoginAccount::of)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+            if (cache != null) {
+                cache.put(username, account);
+            }
+        }
+        // A new principal every time: Spring Security erases the password on the one it is given
+        return account.toPrincipal();
+    }
 
+    /**
+     * Current state of an account, without its password, for refreshing the principal
+     * of a signed-in user after their details change
+     */
+    public Optional<AccountPrincipal> loadPrincipal(Long userId) {
+        return userRepository.findById(userId)
+                .map(LoginAccount::of)
+                .map(account -> account.withPassword(null).toPrincipal());
+    }
 
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                user.getIsActive(),
-                true, true, true,
-                Collections.singleton(new SimpleGrantedAuthority(user.getRole().name()))
-        );
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        Cache cache = cacheManager.getCache(CacheConfig.LOGIN_ACCOUNTS);
+        if (cache != null) {
+            cache.evict(user.getUsername());
+        }
+        log.info("Upgraded password hash for user: {}", user.getUsername());
+        return ((AccountPrincipal) user).withPassword(newPassword);
+    }
+
+    private record LoginAccount(Long userId, String username, String password, Boolean active,
+                                Role role, String fullName) {
+
+        static LoginAccount of(User user) {
+            // findByUsername returns the Patient / Doctor / Admin subclass
+            String fullName = user.getUsername();
+            if (user instanceof Patient patient) {
+                fullName = patient.getFullName();
+            } else if (user instanceof Doctor doctor) {
+                fullName = doctor.getFullName();
+            } else if (user instanceof Admin admin) {
+                fullName = admin.getFullName();
+            }
+            return new LoginAccount(user.getId(), user.getUsername(), user.getPassword(), user.getIsActive(),
+                    user.getRole(), fullName);
+        }
+
+        LoginAccount withPassword(String newPassword) {
+            return new LoginAccount(userId, username, newPassword, active, role, fullName);
+        }
+
+        AccountPrincipal toPrincipal() {
+            return new AccountPrincipal(userId, username, password, Boolean.TRUE.equals(active), role, fullName);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package com.example.ayurlink.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read/write split, enabled with ayurlink.datasource.replica.enabled=true. Writes
+ * stay on the primary pool (spring.datasource.*); read-only transactions
+ * (reports, listings, slot lookups) go to a separately sized replica pool
+ * (ayurlink.datasource.replica.*). Without it Boot's single pool is used as before.
+ *
+ * A replica lags the primary slightly, so lookups that follow a write in the
+ * next request (fetching by id after a redirect) are left read-write, as are
+ * reads that fill a shared cache (schedules, slot bitmaps, earning summaries),
+ * which would otherwise keep the replica's stale view for the cache's TTL.
+ *
+ * Routing is per transaction only because spring.jpa.open-in-view is off. With it on,
+ * the request's EntityManager holds the first connection it takes until the view is
+ * rendered, and every later transaction in the request reuses that pool.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "ayurlink.datasource.replica", name = "enabled", havingValue = "true")
+public class DataSourceConfig {
+
+    public static final String PRIMARY_DATA_SOURCE = "primaryDataSource";
+    public static final String REPLICA_DATA_SOURCE = "replicaDataSource";
+
+    @Bean(name = PRIMARY_DATA_SOURCE)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(name = REPLICA_DATA_SOURCE)
+    @ConfigurationProperties("ayurlink.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    /**
+     * The DataSource JPA, JdbcTemplate and the migrations use. The lazy proxy holds
+     * off fetching a physical connection until the first statement, by which time
+     * the transaction's read-only flag is set and the router can pick the pool.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier(PRIMARY_DATA_SOURCE) DataSource primary,
+                                 @Qualifier(REPLICA_DATA_SOURCE) DataSource replica) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.PRIMARY, primary,
+                ReadWriteRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        log.info("Read-only transactions are routed to the replica pool");
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ayurlink.config;
+
+import com.example.ayurlink.model.IdGenerator;
+import com.example.ayurlink.model.Identifiers;
+import com.example.ayurlink.model.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * Every instance behind the load balancer needs its own node id (0-1023)
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${ayurlink.id.node-id:0}") long nodeId) {
+        IdGenerator generator = new SnowflakeIdGenerator(nodeId);
+        Identifiers.use(generator);
+        log.info("Ticket/receipt id generator using node id {}", nodeId);
+        return generator;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.ayurlink.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Throttles POST /perform-login and /register before the security filter chain,
+ * so a credential-stuffing wave is answered with 429 Too Many Requests before any
+ * password hash or database lookup. Each client address has a token bucket charged
+ * per attempt. Each username has one charged only when a sign-in fails with bad
+ * credentials, so posting someone's name cannot lock them out while they sign in
+ * correctly. Buckets live in a bounded Caffeine map that drops idle entries.
+ *
+ * Metrics: ayurlink.ratelimit.requests (tagged by path and outcome) and
+ * ayurlink.ratelimit.buckets (buckets held in memory).
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN_PATH = "/perform-login";
+    private static final Set<String> LIMITED_PATHS = Set.of(LOGIN_PATH, "/register");
+
+    private final RateLimitProperties properties;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, Counter> allowed;
+    private final Map<String, Counter> rejected;
+
+    public LoginRateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTracked())
+                .expireAfterAccess(properties.getIdleExpiry())
+                .build();
+        this.allowed = counters(meterRegistry, "allowed");
+        this.rejected = counters(meterRegistry, "rejected");
+
+        Gauge.builder("ayurlink.ratelimit.buckets", buckets, Cache::estimatedSize)
+                .description("Sign-in and registration rate limit buckets held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !LIMITED_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getServletPath();
+
+        long waitNanos = acquire("ip:" + request.getRemoteAddr(),
+                properties.getIpBurst(), properties.getIpPerMinute());
+        String username = request.getParameter("username");
+        if (waitNanos == 0 && LOGIN_PATH.equals(path) && username != null && !username.isBlank()) {
+            // Only looked at here; onBadCredentials takes the token if the password is wrong
+            TokenBucket bucket = buckets.getIfPresent(usernameKey(username));
+            waitNanos = bucket != null ? bucket.waitNanos(System.nanoTime()) : 0;
+        }
+
+        if (waitNanos > 0) {
+            rejected.get(path).increment();
+            log.debug("Rate limited {} from {}", path, request.getRemoteAddr());
+            reject(response, waitNanos);
+            return;
+        }
+        allowed.get(path).increment();
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Charge the username's bucket for a sign-in refused with bad credentials (an unknown
+     * username is reported the same way). Successful, disabled or locked sign-ins cost nothing.
+     */
+    @EventListener
+    public void onBadCredentials(AuthenticationFailureBadCredentialsEvent event) {
+        String username = event.getAuthentication().getName();
+        if (properties.isEnabled() && username != null && !username.isBlank()) {
+            acquire(usernameKey(username), properties.getUsernameBurst(), properties.getUsernamePerMinute());
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static String usernameKey(String username) {
+        return "user:" + username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Take a token from the named bucket; 0 when granted, otherwise how long until one is available
+     */
+    private long acquire(String key, int burst, int perMinute) {
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(burst, perMinute));
+        return bucket.tryAcquire(System.nanoTime());
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("Too many attempts. Please try again in " + retryAfterSeconds + " seconds.");
+    }
+
+    private static Map<String, Counter> counters(MeterRegistry meterRegistry, String outcome) {
+        return LIMITED_PATHS.stream().collect(Collectors.toUnmodifiableMap(path -> path,
+                path -> Counter.builder("ayurlink.ratelimit.requests")
+                        .description("Sign-in and registration attempts seen by the rate limiter")
+                        .tag("path", path)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)));
+    }
+
+    /**
+     * Token bucket kept as a single timestamp (generic cell rate algorithm): the
+     * time at which the bucket will be full again. Taking a token moves it one
+     * interval later; the request is refused when that would put it more than a
+     * full burst ahead of now. One compare-and-set per attempt, no locks.
+     */
+    static final class TokenBucket {
+
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(int burst, int perMinute) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.burstNanos = intervalNanos * Math.max(1, burst);
+        }
+
+        /**
+         * How long until a token is available, without taking one
+         */
+        long waitNanos(long now) {
+            long current = fullAt.get();
+            long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long ahead = start + intervalNanos - now;
+            return ahead > burstNanos ? ahead - burstNanos : 0;
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                long next = start + intervalNanos;
+                long ahead = next - now;
+                if (ahead > burstNanos) {
+                    return ahead - burstNanos;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
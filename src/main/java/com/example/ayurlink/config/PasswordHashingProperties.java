@@ -0,0 +1,41 @@
+package com.example.ayurlink.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Password hashing settings. Stored hashes made with another algorithm or a lower
+ * cost keep working and are re-hashed with these settings on the next login.
+ */
+@Component
+@ConfigurationProperties(prefix = "ayurlink.security.password")
+@Data
+public class PasswordHashingProperties {
+
+    /** Algorithm for new hashes: bcrypt or argon2 */
+    private String algorithm = "bcrypt";
+
+    /** BCrypt log rounds; each step doubles the cost */
+    private int bcryptStrength = 10;
+
+    /** Argon2id memory in KiB, iterations and lanes */
+    private int argon2Memory = 19_456;
+    private int argon2Iterations = 2;
+    private int argon2Parallelism = 1;
+
+    /** Threads hashing passwords at once; 0 for half the CPUs */
+    private int hashingThreads = 0;
+
+    /** Sign-ins allowed to wait for a hashing thread before new ones are turned away */
+    private int queueCapacity = 100;
+
+    /** Longest a sign-in waits for its hash */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    public int effectiveHashingThreads() {
+        return hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ayurlink.config;
+
+import com.example.ayurlink.service.AccountChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Rebuilds the current user's AccountPrincipal after their own account changes
+ * (e.g. a patient editing their username), so the session keeps working under the
+ * new name without signing in again. Changes to other users' accounts are picked
+ * up at their next sign-in.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrincipalRefreshListener {
+
+    private final CustomUserDetailsService userDetailsService;
+    private final SecurityContextRepository securityContextRepository;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        Authentication current = SecurityContextHolder.getContext().getAuthentication();
+        if (current == null || !(current.getPrincipal() instanceof AccountPrincipal principal)
+                || !principal.getUserId().equals(event.userId())) {
+            return;
+        }
+
+        userDetailsService.loadPrincipal(event.userId()).ifPresent(refreshed -> {
+            UsernamePasswordAuthenticationToken authentication =
+                    UsernamePasswordAuthenticationToken.authenticated(refreshed, null, refreshed.getAuthorities());
+            authentication.setDetails(current.getDetails());
+
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+
+            if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                    && attributes.getResponse() != null) {
+                securityContextRepository.saveContext(context, attributes.getRequest(), attributes.getResponse());
+            }
+            log.debug("Refreshed principal for user {}", event.userId());
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.ayurlink.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limits on sign-in and registration attempts per client address, and on failed
+ * sign-ins per username. Each limit allows a burst, then refills at a steady rate.
+ */
+@Component
+@ConfigurationProperties(prefix = "ayurlink.security.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Attempts from one client address: burst, then this many per minute */
+    private int ipBurst = 20;
+    private int ipPerMinute = 10;
+
+    /** Wrong passwords for one username, whatever the address; once used up, its sign-ins get 429 */
+    private int usernameBurst = 5;
+    private int usernamePerMinute = 3;
+
+    /** Buckets kept in memory; the least recently used are dropped beyond this */
+    private long maxTracked = 100_000;
+
+    /** Idle buckets are dropped after this (a dropped bucket starts full again) */
+    private Duration idleExpiry = Duration.ofMinutes(15);
+}
@@ -0,0 +1,229 @@
+package com.example.ayurlink.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies versioned SQL scripts from classpath:db/migration (V&lt;n&gt;__&lt;description&gt;.sql)
+ * once each, in version order, recording them in schema_migrations. Hibernate's
+ * ddl-auto=update still owns tables and columns; it runs first (this bean depends on
+ * the entity manager factory), and the scripts add what it cannot express, such as
+ * composite indexes. Scripts should stick to SQL that both MySQL and H2 accept.
+ *
+ * Nodes starting together take turns through a lock row in schema_migration_lock;
+ * one that finds it held waits, then skips what the holder applied. Each statement
+ * that succeeds is recorded in schema_migration_steps, so a script that failed
+ * part-way resumes at the failed statement instead of replaying the ones before it.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SchemaMigrationRunner implements InitializingBean {
+
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final Duration LOCK_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ayurlink.migrations.enabled:true}")
+    private boolean enabled;
+
+    /** How long to wait for another node's migrations before giving up */
+    @Value("${ayurlink.migrations.lock-timeout:5m}")
+    private Duration lockTimeout;
+
+    /** A lock held longer than this is treated as left behind by a node that died */
+    @Value("${ayurlink.migrations.lock-stale-after:30m}")
+    private Duration lockStaleAfter;
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            log.info("Schema migrations disabled");
+            return;
+        }
+
+        createTables();
+        List<Migration> migrations = findMigrations();
+
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        acquireLock(owner);
+        try {
+            migrate(migrations);
+        } finally {
+            jdbcTemplate.update("UPDATE schema_migration_lock SET locked_by = NULL, locked_at = NULL " +
+                    "WHERE id = 1 AND locked_by = ?", owner);
+        }
+    }
+
+    private void migrate(List<Migration> migrations) {
+        // Read under the lock, so versions another node applied while we waited are skipped
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum FROM schema_migrations",
+                rs -> { applied.put(rs.getInt("version"), rs.getLong("checksum")); });
+
+        for (Migration migration : migrations) {
+            Long checksum = applied.get(migration.version());
+            if (checksum == null) {
+                apply(migration);
+            } else if (checksum != migration.checksum()) {
+                log.warn("Migration V{} ({}) has changed since it was applied; edit the schema with a new version instead",
+                        migration.version(), migration.description());
+            }
+        }
+    }
+
+    private void apply(Migration migration) {
+        Set<Integer> done = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT step FROM schema_migration_steps WHERE version = ?", Integer.class, migration.version()));
+        if (done.isEmpty()) {
+            log.info("Applying migration V{}: {}", migration.version(), migration.description());
+        } else {
+            log.info("Resuming migration V{}: {} ({} of {} statements already applied)", migration.version(),
+                    migration.description(), done.size(), migration.statements().size());
+        }
+
+        // DDL commits implicitly on MySQL, so a script is not atomic; record each statement as it succeeds
+        List<String> statements = migration.statements();
+        for (int step = 0; step < statements.size(); step++) {
+            if (done.contains(step)) {
+                continue;
+            }
+            String statement = statements.get(step);
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Migration V" + migration.version() + " failed at: " + statement, e);
+            }
+            jdbcTemplate.update("INSERT INTO schema_migration_steps (version, step) VALUES (?, ?)",
+                    migration.version(), step);
+        }
+        jdbcTemplate.update("INSERT INTO schema_migrations (version, description, checksum, applied_at) " +
+                        "VALUES (?, ?, ?, CURRENT_TIMESTAMP)",
+                migration.version(), migration.description(), migration.checksum());
+        jdbcTemplate.update("DELETE FROM schema_migration_steps WHERE version = ?", migration.version());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void createTables() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                "version INT NOT NULL PRIMARY KEY, " +
+                "description VARCHAR(200) NOT NULL, " +
+                "checksum BIGINT NOT NULL, " +
+                "applied_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration_steps (" +
+                "version INT NOT NULL, " +
+                "step INT NOT NULL, " +
+                "PRIMARY KEY (version, step))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration_lock (" +
+                "id INT NOT NULL PRIMARY KEY, " +
+                "locked_by VARCHAR(200), " +
+                "locked_at TIMESTAMP NULL)");
+        try {
+            jdbcTemplate.update("INSERT INTO schema_migration_lock (id) VALUES (1)");
+        } catch (DuplicateKeyException e) {
+            // Row already there (or another node inserted it first)
+        }
+    }
+
+    /**
+     * Claim the lock row with a conditional update, polling while another node holds it
+     */
+    private void acquireLock(String owner) {
+        Instant deadline = Instant.now().plus(lockTimeout);
+        boolean waiting = false;
+        while (true) {
+            // Both times come from the database clock, so nodes' clocks need not agree
+            int claimed = jdbcTemplate.update("UPDATE schema_migration_lock SET locked_by = ?, locked_at = CURRENT_TIMESTAMP " +
+                    "WHERE id = 1 AND (locked_by IS NULL OR locked_at < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))",
+                    owner, -lockStaleAfter.toSeconds());
+            if (claimed == 1) {
+                return;
+            }
+            if (Instant.now().isAfter(deadline)) {
+                throw new RuntimeException("Timed out waiting for the schema migration lock, held by "
+                        + jdbcTemplate.queryForObject("SELECT locked_by FROM schema_migration_lock WHERE id = 1", String.class));
+            }
+            if (!waiting) {
+                log.info("Waiting for another node to finish schema migrations");
+                waiting = true;
+            }
+            try {
+                Thread.sleep(LOCK_POLL_INTERVAL.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for the schema migration lock", e);
+            }
+        }
+    }
+
+    private List<Migration> findMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+        Map<Integer, Migration> byVersion = new TreeMap<>();
+
+        for (Resource resource : resources) {
+            Matcher matcher = FILE_NAME.matcher(Objects.requireNonNull(resource.getFilename()));
+            if (!matcher.matches()) {
+                continue;
+            }
+            int version = Integer.parseInt(matcher.group(1));
+            String sql = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            Migration migration = new Migration(version, matcher.group(2).replace('_', ' '), checksum(sql), split(sql));
+            if (byVersion.put(version, migration) != null) {
+                throw new RuntimeException("Duplicate migration version V" + version);
+            }
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    /**
+     * Split a script into statements on semicolons, dropping -- comment lines
+     */
+    private static List<String> split(String sql) {
+        StringBuilder stripped = new StringBuilder();
+        for (String line : sql.split("\\R")) {
+            if (!line.trim().startsWith("--")) {
+                stripped.append(line).append('\n');
+            }
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (String statement : stripped.toString().split(";")) {
+            if (!statement.isBlank()) {
+                statements.add(statement.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private record Migration(int version, String description, long checksum, List<String> statements) {
+    }
+}
@@ -1,29 +1,103 @@
 package com.example.ayurlink.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.FlashMapManager;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
+    private static final String ARGON2 = "argon2";
+
+    /**
+     * New hashes use the configured algorithm and cost, with an {id} prefix. Hashes
+     * stored before the prefix existed are plain BCrypt; they, and any hash with a
+     * lower cost or another algorithm, are upgraded on the next successful login
+     * (CustomUserDetailsService.updatePassword).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties,
+                                           @Qualifier(AsyncConfig.PASSWORD_EXECUTOR) ThreadPoolTaskExecutor passwordHashingExecutor) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(properties.getBcryptStrength()));
+        encoders.put(ARGON2, new Argon2PasswordEncoder(16, 32, properties.getArgon2Parallelism(),
+                properties.getArgon2Memory(), properties.getArgon2Iterations()));
+
+        String algorithm = properties.getAlgorithm().toLowerCase(Locale.ROOT);
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unknown password hashing algorithm: " + properties.getAlgorithm());
+        }
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        return new BoundedPasswordEncoder(delegating, passwordHashingExecutor, properties.getTimeout());
     }
 
+    /**
+     * Where the signed-in user's security context is kept between requests (the HTTP
+     * session, or a signed cookie in stateless mode); shared with
+     * PrincipalRefreshListener, which replaces it when the user's account changes
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityContextRepository securityContextRepository(SessionTokenProperties sessionTokens,
+                                                               TokenSigner tokenSigner) {
+        SecurityContextRepository store = sessionTokens.isEnabled()
+                ? new SignedTokenSecurityContextRepository(tokenSigner, sessionTokens)
+                : new HttpSessionSecurityContextRepository();
+        return new DelegatingSecurityContextRepository(new RequestAttributeSecurityContextRepository(), store);
+    }
+
+    /**
+     * Stateless mode: flash messages travel in a signed cookie rather than the session
+     */
+    @Bean(name = DispatcherServlet.FLASH_MAP_MANAGER_BEAN_NAME)
+    @ConditionalOnProperty(prefix = "ayurlink.security.session-token", name = "enabled", havingValue = "true")
+    public FlashMapManager flashMapManager(TokenSigner tokenSigner, ObjectMapper objectMapper,
+                                           SessionTokenProperties sessionTokens) {
+        return new SignedCookieFlashMapManager(tokenSigner, objectMapper, sessionTokens.getFlashCookieName());
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   SecurityContextRepository securityContextRepository,
+                                                   SessionTokenProperties sessionTokens) throws Exception {
+        if (sessionTokens.isEnabled()) {
+            // No servlet session at all: the CSRF token moves to a cookie as well
+            http
+                    .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .csrf(csrf -> csrf.csrfTokenRepository(new CookieCsrfTokenRepository()));
+        }
+
         http
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
                 .authorizeHttpRequests(auth -> auth
                         // Public pages accessible to everyone (logged in or not)
-                        .requestMatchers("/", "/home", "/treatments", "/about", "/contact","/treatment/**").permitAll()
+                        .requestMatchers("/", "/home", "/treatments", "/about", "/contact","/treatment/**", "/treatment-image/**").permitAll()
 
                         // ✅ AUTH PAGES - Unauthenticated users only
                         .requestMatchers("/login", "/register", "/perform-login", "/error").permitAll()
@@ -44,6 +118,10 @@ public class SecurityConfig {
                         .requestMatchers("/superadmin/**").hasRole("SUPER_ADMIN")
                         .requestMatchers("/payment/**").hasAnyRole("PATIENT", "ADMIN", "SUPER_ADMIN")
 
+                        // Actuator: health for load balancers, everything else (metrics, caches) for super admins
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
+
                         // All other requests need authentication
                         .anyRequest().authenticated()
                 )
@@ -57,7 +135,7 @@ public class SecurityConfig {
                 )
                 .logout(logout -> logout
                         .logoutUrl("/logout")
-                        .deleteCookies("JSESSIONID")
+                        .deleteCookies("JSESSIONID", sessionTokens.getCookieName(), sessionTokens.getFlashCookieName())
                         .logoutSuccessUrl("/")
                         .invalidateHttpSession(true)
                         .clearAuthentication(true)
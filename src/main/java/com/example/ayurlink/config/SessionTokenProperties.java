@@ -0,0 +1,41 @@
+package com.example.ayurlink.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stateless session mode: the signed-in user is kept in an HMAC-signed cookie
+ * instead of the servlet session, so any instance can serve any request. Keys are
+ * rotated by adding a new one, switching signing-key to it, and removing the old
+ * one once the tokens it signed have expired.
+ */
+@Component
+@ConfigurationProperties(prefix = "ayurlink.security.session-token")
+@Data
+public class SessionTokenProperties {
+
+    /** Off: sessions stay in the servlet container as before */
+    private boolean enabled = false;
+
+    private String cookieName = "AYURLINK_SESSION";
+
+    /** Cookie carrying flash messages across a redirect */
+    private String flashCookieName = "AYURLINK_FLASH";
+
+    /**
+     * Lifetime of a token. Tokens are not checked against the database, so a
+     * deactivated account keeps its current token until it expires.
+     */
+    private Duration expiry = Duration.ofHours(8);
+
+    /** Id of the key new tokens are signed with */
+    private String signingKey;
+
+    /** Key id to Base64 secret (at least 32 bytes); tokens signed with any of them are accepted */
+    private Map<String, String> keys = new LinkedHashMap<>();
+}
@@ -0,0 +1,129 @@
+package com.example.ayurlink.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.support.AbstractFlashMapManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carries flash attributes (the success / error messages shown after a redirect)
+ * in a signed cookie, so stateless session mode does not create an HTTP session
+ * for them. Only String attributes are kept, which is all the controllers flash.
+ */
+@Slf4j
+public class SignedCookieFlashMapManager extends AbstractFlashMapManager {
+
+    // Leaves room for the other cookies in browsers' 4 KB per-cookie limit
+    private static final int MAX_COOKIE_LENGTH = 3_500;
+
+    private final TokenSigner signer;
+    private final ObjectMapper objectMapper;
+    private final String cookieName;
+
+    public SignedCookieFlashMapManager(TokenSigner signer, ObjectMapper objectMapper, String cookieName) {
+        this.signer = signer;
+        this.objectMapper = objectMapper;
+        this.cookieName = cookieName;
+    }
+
+    @Override
+    protected List<FlashMap> retrieveFlashMaps(HttpServletRequest request) {
+        String value = readCookie(request);
+        if (value == null) {
+            return null;
+        }
+        return signer.open(TokenSigner.FLASH, value).map(this::fromJson).orElse(null);
+    }
+
+    @Override
+    protected void updateFlashMaps(List<FlashMap> flashMaps, HttpServletRequest request, HttpServletResponse response) {
+        String value = flashMaps.isEmpty() ? "" : signer.seal(TokenSigner.FLASH, toJson(flashMaps));
+        if (value.length() > MAX_COOKIE_LENGTH) {
+            log.warn("Dropping flash attributes too large for a cookie ({} characters)", value.length());
+            value = "";
+        }
+        if (value.isEmpty() && readCookie(request) == null) {
+            return;
+        }
+
+        Cookie cookie = new Cookie(cookieName, value);
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(value.isEmpty() ? 0 : getFlashMapTimeout());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String toJson(List<FlashMap> flashMaps) {
+        List<StoredFlashMap> stored = new ArrayList<>();
+        for (FlashMap flashMap : flashMaps) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            flashMap.forEach((name, value) -> {
+                if (value instanceof String text) {
+                    attributes.put(name, text);
+                } else if (value != null) {
+                    log.warn("Flash attribute {} is not a String and was not kept", name);
+                }
+            });
+            stored.add(new StoredFlashMap(flashMap.getTargetRequestPath(), flashMap.getTargetRequestParams(),
+                    flashMap.getExpirationTime(), attributes));
+        }
+        try {
+            return objectMapper.writeValueAsString(stored);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write flash attributes", e);
+        }
+    }
+
+    private List<FlashMap> fromJson(String json) {
+        try {
+            List<StoredFlashMap> stored = objectMapper.readValue(json, new TypeReference<List<StoredFlashMap>>() { });
+            List<FlashMap> flashMaps = new ArrayList<>();
+            for (StoredFlashMap entry : stored) {
+                FlashMap flashMap = new FlashMap();
+                flashMap.setTargetRequestPath(entry.path());
+                if (entry.params() != null) {
+                    flashMap.addTargetRequestParams(new LinkedMultiValueMap<>(entry.params()));
+                }
+                flashMap.setExpirationTime(entry.expirationTime());
+                flashMap.putAll(entry.attributes());
+                flashMaps.add(flashMap);
+            }
+            return flashMaps;
+        } catch (JsonProcessingException e) {
+            log.debug("Ignoring unreadable flash cookie: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    record StoredFlashMap(String path, Map<String, List<String>> params, long expirationTime,
+                          Map<String, String> attributes) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ayurlink.config;
+
+import com.example.ayurlink.model.Role;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Keeps the security context in a signed cookie (stateless session mode) instead
+ * of the HTTP session. The token carries the user id, role, name and expiry, and
+ * is checked with the HMAC key alone, so no instance needs a session store or a
+ * database lookup to recognise the user. It is written when the context is saved:
+ * at sign-in, and again when PrincipalRefreshListener refreshes the principal.
+ */
+@Slf4j
+public class SignedTokenSecurityContextRepository implements SecurityContextRepository {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final TokenSigner signer;
+    private final SessionTokenProperties properties;
+
+    public SignedTokenSecurityContextRepository(TokenSigner signer, SessionTokenProperties properties) {
+        this.signer = signer;
+        this.properties = properties;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        readPrincipal(requestResponseHolder.getRequest()).ifPresent(principal ->
+                context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                        principal, null, principal.getAuthorities())));
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof AccountPrincipal principal) {
+            long expiresAt = Instant.now().plus(properties.getExpiry()).getEpochSecond();
+            writeCookie(request, response, issue(principal, expiresAt), (int) properties.getExpiry().toSeconds());
+        } else if (readCookie(request) != null) {
+            // Signed out (or the context was cleared): drop the token
+            writeCookie(request, response, "", 0);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return readPrincipal(request).isPresent();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String issue(AccountPrincipal principal, long expiresAt) {
+        String payload = principal.getUserId()
+                + ":" + principal.getRole().name()
+                + ":" + expiresAt
+                + ":" + encode(principal.getUsername())
+                + ":" + encode(principal.getFullName() != null ? principal.getFullName() : "");
+        return signer.seal(TokenSigner.SESSION, payload);
+    }
+
+    private Optional<AccountPrincipal> readPrincipal(HttpServletRequest request) {
+        return signer.open(TokenSigner.SESSION, readCookie(request)).flatMap(this::parse);
+    }
+
+    private Optional<AccountPrincipal> parse(String payload) {
+        String[] parts = payload.split(":", -1);
+        if (parts.length != 5) {
+            return Optional.empty();
+        }
+        try {
+            if (Long.parseLong(parts[2]) <= Instant.now().getEpochSecond()) {
+                return Optional.empty();
+            }
+            return Optional.of(new AccountPrincipal(Long.valueOf(parts[0]), decode(parts[3]), null, true,
+                    Role.valueOf(parts[1]), decode(parts[4])));
+        } catch (IllegalArgumentException e) {
+            // Signed by us, so only a token from an incompatible version gets here
+            log.debug("Ignoring unreadable session token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (properties.getCookieName().equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(properties.getCookieName(), value);
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ayurlink.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Signs cookie payloads with HMAC-SHA256 as {@code keyId.payload.signature}
+ * (Base64url), using the keys from {@link SessionTokenProperties}. Opening a value
+ * needs only the key it names, so verifying costs no lookup of any kind.
+ *
+ * Each value is sealed for a purpose (a session token, a flash cookie), which is
+ * part of the signed input but not of the value, so a value sealed for one purpose
+ * does not open as another: a flash cookie cannot be replayed as a session.
+ */
+@Component
+public class TokenSigner {
+
+    public static final String SESSION = "session";
+    public static final String FLASH = "flash";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String signingKeyId;
+
+    public TokenSigner(SessionTokenProperties properties) {
+        this.signingKeyId = properties.getSigningKey();
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        properties.getKeys().forEach((id, secret) -> {
+            if (!KEY_ID.matcher(id).matches()) {
+                throw new IllegalStateException("Invalid session token key id: " + id);
+            }
+            byte[] bytes = Base64.getDecoder().decode(secret);
+            if (bytes.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("Session token key " + id + " must be at least "
+                        + MIN_KEY_BYTES + " bytes");
+            }
+            keys.put(id, new SecretKeySpec(bytes, ALGORITHM));
+        });
+        if (signingKeyId == null || !keys.containsKey(signingKeyId)) {
+            throw new IllegalStateException("Session token signing key not configured: " + signingKeyId);
+        }
+    }
+
+    public String seal(String purpose, String payload) {
+        String signed = signingKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signed + "." + ENCODER.encodeToString(mac(keys.get(signingKeyId), purpose, signed));
+    }
+
+    /**
+     * The payload of a value sealed for this purpose with any configured key; empty
+     * when it is malformed, signed with an unknown key, sealed for another purpose or altered
+     */
+    public Optional<String> open(String purpose, String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        int first = value.indexOf('.');
+        int last = value.lastIndexOf('.');
+        if (first <= 0 || last == first) {
+            return Optional.empty();
+        }
+
+        SecretKeySpec key = keys.get(value.substring(0, first));
+        if (key == null) {
+            return Optional.empty();
+        }
+        try {
+            String signed = value.substring(0, last);
+            byte[] signature = DECODER.decode(value.substring(last + 1));
+            if (!MessageDigest.isEqual(mac(key, purpose, signed), signature)) {
+                return Optional.empty();
+            }
+            return Optional.of(new String(DECODER.decode(value.substring(first + 1, last)), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static byte[] mac(SecretKeySpec key, String purpose, String signed) {
+        try {
+            // Mac instances are not thread-safe, and creating one is cheap next to a request
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            // Purposes are fixed words without dots, so the prefix cannot run into the key id
+            mac.update((purpose + ".").getBytes(StandardCharsets.US_ASCII));
+            return mac.doFinal(signed.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign session token", e);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.ayurlink.controller;
 
+import com.example.ayurlink.dto.DashboardMetrics;
+import com.example.ayurlink.dto.DoctorEarningTotals;
+import com.example.ayurlink.dto.KeysetPage;
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.service.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -11,12 +16,16 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 @RequestMapping("/admin")
@@ -28,35 +37,21 @@ public class AdminController {
     private final AdminService adminService;
     private final AppointmentService appointmentService;
     private final PaymentService paymentService;
-    private final FileStorageService fileStorageService;
+    private final FileServingService fileServingService;
     private final DoctorEarningService doctorEarningService;
+    private final DashboardMetricsService dashboardMetricsService;
+
+    private static final int EARNINGS_PAGE_SIZE = 20;
+    private static final int LISTING_PAGE_SIZE = 25;
 
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
-        List<Treatment> activeTreatments = treatmentService.getActiveTreatments();
-        List<Doctor> doctors = doctorService.getAllDoctors();
-
-        // Get all appointments
-        List<Appointment> allAppointments = appointmentService.getAllAppointments();
-
-        // Count today's appointments
-        LocalDate today = LocalDate.now();
-        long todayAppointmentCount = allAppointments.stream()
-                .filter(apt -> apt.getAppointmentDate().equals(today))
-                .count();
-
-        // Count total unique patients from appointments
-        long totalPatientCount = allAppointments.stream()
-                .map(Appointment::getPatient)
-                .filter(patient -> patient != null)
-                .map(Patient::getId)
-                .distinct()
-                .count();
+        DashboardMetrics metrics = dashboardMetricsService.getMetrics();
 
-        model.addAttribute("treatmentCount", activeTreatments.size());
-        model.addAttribute("doctorCount", doctors.size());
-        model.addAttribute("todayAppointmentCount", todayAppointmentCount);
-        model.addAttribute("totalPatientCount", totalPatientCount);
+        model.addAttribute("treatmentCount", metrics.treatmentCount());
+        model.addAttribute("doctorCount", metrics.doctorCount());
+        model.addAttribute("todayAppointmentCount", metrics.todayAppointmentCount());
+        model.addAttribute("totalPatientCount", metrics.totalPatientCount());
 
         return "admin/dashboard";
     }
@@ -122,25 +117,14 @@ public class AdminController {
     }
 
     @GetMapping("/treatment-image/{filename}")
-    public ResponseEntity<Resource> getTreatmentImage(@PathVariable String filename) {
+    public void getTreatmentImage(@PathVariable String filename,
+                                  @RequestParam(required = false) ImageSize size,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
         try {
-            Resource resource = fileStorageService.loadFileAsResource(filename);
-
-            String contentType = "application/octet-stream";
-            if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                contentType = "image/jpeg";
-            } else if (filename.endsWith(".png")) {
-                contentType = "image/png";
-            } else if (filename.endsWith(".gif")) {
-                contentType = "image/gif";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            fileServingService.serveImage(filename, size, false, request, response);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
@@ -206,9 +190,21 @@ public class AdminController {
     // ==================== APPOINTMENT MANAGEMENT ====================
 
     @GetMapping("/appointments")
-    public String listAppointments(Model model) {
-        List<Appointment> appointments = appointmentService.getAllAppointments();
-        model.addAttribute("appointments", appointments);
+    public String listAppointments(@RequestParam(required = false) AppointmentStatus status,
+                                   @RequestParam(required = false) Long doctorId,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   @RequestParam(required = false) KeysetPage.Order sort,
+                                   @RequestParam(required = false) Long after,
+                                   @RequestParam(required = false) Long before,
+                                   Model model) {
+        KeysetPage<Appointment> page = appointmentService.getAppointmentsPage(
+                status, doctorId, from, to, sort, after, before, LISTING_PAGE_SIZE);
+
+        model.addAttribute("appointments", page.getItems());
+        model.addAttribute("page", page);
+        addListingFilters(model, status, doctorId, from, to, page.getOrder());
+        model.addAttribute("statuses", AppointmentStatus.values());
         return "admin/appointments";
     }
 
@@ -263,15 +259,23 @@ public class AdminController {
 
     // ==================== PAYMENT MANAGEMENT ====================
     @GetMapping("/payments")
-    public String listPayments(Model model) {
+    public String listPayments(@RequestParam(required = false) PaymentStatus status,
+                               @RequestParam(required = false) Long doctorId,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               @RequestParam(required = false) KeysetPage.Order sort,
+                               @RequestParam(required = false) Long after,
+                               @RequestParam(required = false) Long before,
+                               Model model) {
         try {
-            List<Payment> payments = paymentService.getAllPayments();
-            List<Payment> pendingVerification = paymentService.getPendingVerificationPayments();
+            KeysetPage<Payment> page = paymentService.getPaymentsPage(
+                    status, doctorId, from, to, sort, after, before, LISTING_PAGE_SIZE);
             Map<String, Object> stats = paymentService.getPaymentStatistics();
 
-            model.addAttribute("payments", payments);
-            model.addAttribute("pendingVerification", pendingVerification);
+            model.addAttribute("payments", page.getItems());
+            model.addAttribute("page", page);
             model.addAttribute("stats", stats);
+            addListingFilters(model, status, doctorId, from, to, page.getOrder());
 
             return "admin/payments";
         } catch (Exception e) {
@@ -365,25 +369,6 @@ public class AdminController {
             LocalDate selectedDate = (date != null) ? LocalDate.parse(date) : LocalDate.now();
             Map<String, Object> summary = paymentService.getDailySummary(selectedDate);
 
-            @SuppressWarnings("unchecked")
-            List<Payment> payments = (List<Payment>) summary.get("payments");
-
-            long completedPayments = payments.stream()
-                    .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                    .count();
-
-            Double totalRefunds = payments.stream()
-                    .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
-                    .mapToDouble(p -> p.getRefundAmount() != null ? p.getRefundAmount() : 0.0)
-                    .sum();
-
-            Double totalRevenue = (Double) summary.get("totalRevenue");
-            Double netRevenue = totalRevenue - totalRefunds;
-
-            summary.put("completedPayments", completedPayments);
-            summary.put("totalRefunds", totalRefunds);
-            summary.put("netRevenue", netRevenue);
-
             model.addAttribute("summary", summary);
             model.addAttribute("selectedDate", selectedDate);
 
@@ -408,29 +393,6 @@ public class AdminController {
 
             Map<String, Object> summary = paymentService.getMonthlySummary(selectedYear, selectedMonth);
 
-            @SuppressWarnings("unchecked")
-            List<Payment> payments = (List<Payment>) summary.get("payments");
-
-            // Only Cash and Receipt Upload methods
-            long cashPayments = payments.stream()
-                    .filter(p -> p.getPaymentMethod() == PaymentMethod.CASH)
-                    .count();
-            long receiptPayments = payments.stream()
-                    .filter(p -> p.getPaymentMethod() == PaymentMethod.RECEIPT_UPLOAD)
-                    .count();
-            long refunded = payments.stream()
-                    .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
-                    .count();
-
-            summary.put("cashPayments", cashPayments);
-            summary.put("receiptPayments", receiptPayments);
-            summary.put("refunded", refunded);
-
-            Integer totalPayments = (Integer) summary.get("totalPayments");
-            Double totalRevenue = (Double) summary.get("totalRevenue");
-            Double averagePayment = totalPayments > 0 ? totalRevenue / totalPayments : 0.0;
-            summary.put("averagePayment", averagePayment);
-
             model.addAttribute("summary", summary);
             model.addAttribute("selectedYear", selectedYear);
             model.addAttribute("selectedMonth", selectedMonth);
@@ -445,82 +407,86 @@ public class AdminController {
         }
     }
     @GetMapping("/payments/reports/export-daily")
-    public ResponseEntity<String> exportDailyReport(@RequestParam String date) {
+    public ResponseEntity<StreamingResponseBody> exportDailyReport(@RequestParam String date,
+                                                                   @RequestParam(defaultValue = "false") boolean gzip) {
         LocalDate selectedDate = LocalDate.parse(date);
-        String csv = paymentService.exportPaymentsToCSV(selectedDate, selectedDate);
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=daily-report-" + date + ".csv")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(csv);
+        return csvExport("daily-report-" + date, selectedDate, selectedDate, gzip);
     }
 
     @GetMapping("/payments/reports/export-monthly")
-    public ResponseEntity<String> exportMonthlyReport(@RequestParam int year, @RequestParam int month) {
+    public ResponseEntity<StreamingResponseBody> exportMonthlyReport(@RequestParam int year, @RequestParam int month,
+                                                                     @RequestParam(defaultValue = "false") boolean gzip) {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
-        String csv = paymentService.exportPaymentsToCSV(startDate, endDate);
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=monthly-report-" + year + "-" + month + ".csv")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(csv);
+        return csvExport("monthly-report-" + year + "-" + month, startDate, endDate, gzip);
     }
 
     @GetMapping("/payments/export/csv")
-    public ResponseEntity<String> exportPaymentsCSV(@RequestParam String startDate,
-                                                    @RequestParam String endDate) {
+    public ResponseEntity<StreamingResponseBody> exportPaymentsCSV(@RequestParam String startDate,
+                                                                   @RequestParam String endDate,
+                                                                   @RequestParam(defaultValue = "false") boolean gzip) {
         LocalDate start = LocalDate.parse(startDate);
         LocalDate end = LocalDate.parse(endDate);
-        String csv = paymentService.exportPaymentsToCSV(start, end);
+        return csvExport("payments-" + startDate + "-to-" + endDate, start, end, gzip);
+    }
+
+    /**
+     * Stream the payments CSV straight to the response, optionally gzip compressed
+     */
+    private ResponseEntity<StreamingResponseBody> csvExport(String baseName, LocalDate start, LocalDate end,
+                                                            boolean gzip) {
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                paymentService.writePaymentsCsv(start, end, compressed);
+                compressed.finish();
+            } else {
+                paymentService.writePaymentsCsv(start, end, out);
+            }
+        };
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=payments-" + startDate + "-to-" + endDate + ".csv")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(csv);
+                        "attachment; filename=" + baseName + (gzip ? ".csv.gz" : ".csv"))
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv"))
+                .body(body);
     }
 
 
     @GetMapping("/payments/receipt/view/{paymentId}")
-    public ResponseEntity<Resource> viewUploadedReceipt(@PathVariable Long paymentId,
-                                                        Authentication auth) {
+    public void viewUploadedReceipt(@PathVariable Long paymentId,
+                                    HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
         try {
             Payment payment = paymentService.getPaymentById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found"));
 
             if (payment.getReceiptFileName() == null) {
-                return ResponseEntity.notFound().build();
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
 
-            Resource resource = fileStorageService.loadFileAsResource(payment.getReceiptFileName());
-
-            String contentType = "application/octet-stream";
-            String fileName = payment.getReceiptFileName();
-            if (fileName.endsWith(".pdf")) {
-                contentType = "application/pdf";
-            } else if (fileName.matches(".*\\.(jpg|jpeg)$")) {
-                contentType = "image/jpeg";
-            } else if (fileName.endsWith(".png")) {
-                contentType = "image/png";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .body(resource);
-
-        } catch (Exception e) {
-            System.err.println("Error loading receipt: " + e.getMessage());
-            return ResponseEntity.notFound().build();
+            fileServingService.serve(payment.getReceiptFileName(), FileServingService.Disposition.INLINE, false,
+                    request, response);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
+
     // ==================== ADMIN CHARGES & EARNINGS MANAGEMENT ====================
 
     @GetMapping("/charges")
-    public String viewAdminCharges(Model model) {
+    public String viewAdminCharges(@RequestParam(required = false) ChargeStatus status,
+                                   @RequestParam(required = false) Long doctorId,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   @RequestParam(required = false) KeysetPage.Order sort,
+                                   @RequestParam(required = false) Long after,
+                                   @RequestParam(required = false) Long before,
+                                   Model model) {
         try {
-            List<AdminCharge> charges = doctorEarningService.getAllAdminCharges();
+            KeysetPage<AdminCharge> page = doctorEarningService.getAdminChargesPage(
+                    status, doctorId, from, to, sort, after, before, LISTING_PAGE_SIZE);
             Double totalCharges = doctorEarningService.getTotalAdminCharges();
 
             // Calculate monthly breakdown
@@ -528,7 +494,11 @@ public class AdminController {
             LocalDate startOfMonth = now.withDayOfMonth(1);
             Double monthlyCharges = doctorEarningService.getAdminChargesByDateRange(startOfMonth, now);
 
-            model.addAttribute("charges", charges);
+            model.addAttribute("charges", page.getItems());
+            model.addAttribute("page", page);
+            model.addAttribute("chargeCount", doctorEarningService.countAdminCharges());
+            model.addAttribute("statuses", ChargeStatus.values());
+            addListingFilters(model, status, doctorId, from, to, page.getOrder());
             model.addAttribute("totalCharges", totalCharges != null ? totalCharges : 0.0);
             model.addAttribute("monthlyCharges", monthlyCharges != null ? monthlyCharges : 0.0);
 
@@ -540,17 +510,20 @@ public class AdminController {
     }
 
     @GetMapping("/earnings/doctor/{doctorId}")
-    public String viewDoctorEarnings(@PathVariable Long doctorId, Model model) {
+    public String viewDoctorEarnings(@PathVariable Long doctorId,
+                                     @RequestParam(defaultValue = "0") int page,
+                                     Model model) {
         try {
             Doctor doctor = doctorService.getDoctorById(doctorId)
                     .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
             Map<String, Object> earningSummary = doctorEarningService.getDoctorEarningSummary(doctorId);
-            List<DoctorEarning> allEarnings = doctorEarningService.getDoctorEarnings(doctorId);
+            Page<DoctorEarning> earningsPage = doctorEarningService.getDoctorEarningsPage(doctorId, page, EARNINGS_PAGE_SIZE);
 
             model.addAttribute("doctor", doctor);
             model.addAttribute("earningSummary", earningSummary);
-            model.addAttribute("allEarnings", allEarnings);
+            model.addAttribute("allEarnings", earningsPage.getContent());
+            model.addAttribute("earningsPage", earningsPage);
 
             return "admin/doctor-earnings";
         } catch (Exception e) {
@@ -563,15 +536,15 @@ public class AdminController {
     public String viewAllDoctorEarnings(Model model) {
         try {
             List<Doctor> doctors = doctorService.getAllDoctors();
+            Map<Long, DoctorEarningTotals> earningTotals = doctorEarningService.getEarningTotalsByDoctor();
             Map<Long, Double> doctorTotalEarnings = new HashMap<>();
             Map<Long, Double> doctorPendingEarnings = new HashMap<>();
 
             for (Doctor doctor : doctors) {
-                Double total = doctorEarningService.getTotalDoctorEarnings(doctor.getId());
-                Double pending = doctorEarningService.getPendingEarningsAmount(doctor.getId());
-
-                doctorTotalEarnings.put(doctor.getId(), total != null ? total : 0.0);
-                doctorPendingEarnings.put(doctor.getId(), pending != null ? pending : 0.0);
+                DoctorEarningTotals totals = earningTotals.getOrDefault(doctor.getId(),
+                        DoctorEarningTotals.empty(doctor.getId()));
+                doctorTotalEarnings.put(doctor.getId(), totals.totalEarnings());
+                doctorPendingEarnings.put(doctor.getId(), totals.pendingAmount());
             }
 
             model.addAttribute("doctors", doctors);
@@ -610,23 +583,19 @@ public class AdminController {
             Double totalAdminCharges = doctorEarningService.getTotalAdminCharges();
 
             // Calculate total doctor earnings across all doctors
-            List<Doctor> doctors = doctorService.getAllDoctors();
             Double totalDoctorEarnings = 0.0;
             Double totalPendingSettlements = 0.0;
 
-            for (Doctor doctor : doctors) {
-                Double doctorTotal = doctorEarningService.getTotalDoctorEarnings(doctor.getId());
-                Double doctorPending = doctorEarningService.getPendingEarningsAmount(doctor.getId());
-
-                totalDoctorEarnings += (doctorTotal != null ? doctorTotal : 0.0);
-                totalPendingSettlements += (doctorPending != null ? doctorPending : 0.0);
+            for (DoctorEarningTotals totals : doctorEarningService.getEarningTotalsByDoctor().values()) {
+                totalDoctorEarnings += totals.totalEarnings();
+                totalPendingSettlements += totals.pendingAmount();
             }
 
             model.addAttribute("paymentStats", paymentStats);
             model.addAttribute("totalAdminCharges", totalAdminCharges != null ? totalAdminCharges : 0.0);
             model.addAttribute("totalDoctorEarnings", totalDoctorEarnings);
             model.addAttribute("totalPendingSettlements", totalPendingSettlements);
-            model.addAttribute("totalDoctors", doctors.size());
+            model.addAttribute("totalDoctors", doctorService.countDoctors());
 
             return "admin/financial-summary";
         } catch (Exception e) {
@@ -634,4 +603,17 @@ public class AdminController {
             return "admin/financial-summary";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Current filter values for the listing filter form and pager links
+     */
+    private void addListingFilters(Model model, Enum<?> status, Long doctorId,
+                                   LocalDate from, LocalDate to, KeysetPage.Order sort) {
+        model.addAttribute("status", status);
+        model.addAttribute("doctorId", doctorId);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("sort", sort);
+        model.addAttribute("doctors", doctorService.getAllDoctors());
+    }
+}
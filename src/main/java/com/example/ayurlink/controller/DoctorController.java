@@ -1,5 +1,6 @@
 package com.example.ayurlink.controller;
 
+import com.example.ayurlink.config.AccountPrincipal;
 import com.example.ayurlink.model.Appointment;
 import com.example.ayurlink.model.Doctor;
 import com.example.ayurlink.model.DoctorEarning;
@@ -9,7 +10,7 @@ import com.example.ayurlink.service.DoctorEarningService;
 import com.example.ayurlink.service.DoctorService;
 import com.example.ayurlink.service.PaymentService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -30,13 +31,14 @@ public class DoctorController {
     private final PaymentService paymentService;
     private final DoctorEarningService doctorEarningService;
 
+    private static final int EARNINGS_PAGE_SIZE = 20;
+
     @GetMapping("/dashboard")
-    public String dashboard(Authentication auth, Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
+    public String dashboard(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        Doctor doctor = doctorService.getDoctorById(principal.getDoctorId())
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
-        List<Appointment> appointments = appointmentService.getDoctorAppointments(doctor.getId());
+        List<Appointment> appointments = appointmentService.getDoctorAppointments(doctor.getId(), LocalDate.now());
 
         // Get earning summary
         Map<String, Object> earningSummary = doctorEarningService.getDoctorEarningSummary(doctor.getId());
@@ -52,26 +54,17 @@ public class DoctorController {
     }
 
     @GetMapping("/appointments")
-    public String viewAppointments(Authentication auth, Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-        List<Appointment> appointments = appointmentService.getDoctorAppointments(doctor.getId());
-        model.addAttribute("doctor", doctor);
+    public String viewAppointments(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        List<Appointment> appointments = appointmentService.getDoctorAppointments(principal.getDoctorId());
         model.addAttribute("appointments", appointments);
         return "doctor/appointments";
     }
     @PostMapping("/appointments/{id}/complete")
     public String completeAppointment(@PathVariable Long id,
-                                      Authentication auth,
+                                      @AuthenticationPrincipal AccountPrincipal principal,
                                       RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Doctor doctor = doctorService.getDoctorByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-            appointmentService.completeAppointment(id, doctor.getId());
+            appointmentService.completeAppointment(id, principal.getDoctorId());
             redirectAttributes.addFlashAttribute("success", "Appointment marked as completed");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -80,14 +73,10 @@ public class DoctorController {
     }
     @PostMapping("/appointments/{id}/cancel")
     public String cancelAppointment(@PathVariable Long id,
-                                    Authentication auth,
+                                    @AuthenticationPrincipal AccountPrincipal principal,
                                     RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Doctor doctor = doctorService.getDoctorByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-            appointmentService.cancelAppointment(id, doctor.getId());
+            appointmentService.cancelAppointment(id, principal.getDoctorId());
             redirectAttributes.addFlashAttribute("success", "Appointment cancelled successfully");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -96,9 +85,8 @@ public class DoctorController {
     }
 
     @GetMapping("/profile")
-    public String viewProfile(Authentication auth, Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
+    public String viewProfile(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        Doctor doctor = doctorService.getDoctorById(principal.getDoctorId())
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
         model.addAttribute("doctor", doctor);
@@ -107,14 +95,10 @@ public class DoctorController {
 
     @PostMapping("/profile/update")
     public String updateProfile(@ModelAttribute Doctor doctor,
-                                Authentication auth,
+                                @AuthenticationPrincipal AccountPrincipal principal,
                                 RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Doctor existing = doctorService.getDoctorByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-            doctorService.updateDoctor(existing.getId(), doctor);
+            doctorService.updateDoctor(principal.getDoctorId(), doctor);
             redirectAttributes.addFlashAttribute("success", "Profile updated successfully");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -123,9 +107,8 @@ public class DoctorController {
     }
 
     @GetMapping("/availability")
-    public String manageAvailability(Authentication auth, Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
+    public String manageAvailability(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        Doctor doctor = doctorService.getDoctorById(principal.getDoctorId())
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
         model.addAttribute("doctor", doctor);
@@ -134,14 +117,10 @@ public class DoctorController {
 
     @PostMapping("/availability/update")
     public String updateAvailability(@RequestParam List<String> availability,
-                                     Authentication auth,
+                                     @AuthenticationPrincipal AccountPrincipal principal,
                                      RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Doctor doctor = doctorService.getDoctorByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-            doctorService.updateAvailability(doctor.getId(), availability);
+            doctorService.updateAvailability(principal.getDoctorId(), availability);
             redirectAttributes.addFlashAttribute("success", "Availability updated successfully");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -149,28 +128,24 @@ public class DoctorController {
         return "redirect:/doctor/availability";
     }
     @GetMapping("/earnings")
-    public String viewEarnings(Authentication auth, Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
+    public String viewEarnings(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
         // Get completed appointments for this doctor
         List<Appointment> completedAppointments = appointmentService
-                .getCompletedAppointmentsByDoctor(doctor.getId());
+                .getCompletedAppointmentsByDoctor(principal.getDoctorId());
 
         // Calculate total earnings from payments
         // Get comprehensive earning summary
-        Map<String, Object> earningSummary = doctorEarningService.getDoctorEarningSummary(doctor.getId());
+        Map<String, Object> earningSummary = doctorEarningService.getDoctorEarningSummary(principal.getDoctorId());
 
-        // Get all earnings (both pending and settled)
-        List<DoctorEarning> allEarnings = doctorEarningService.getDoctorEarnings(doctor.getId());
+        // Latest earnings (both pending and settled)
+        List<DoctorEarning> allEarnings = doctorEarningService
+                .getDoctorEarningsPage(principal.getDoctorId(), 0, EARNINGS_PAGE_SIZE).getContent();
 
         // Calculate breakdown
         Double totalEarnings = (Double) earningSummary.get("totalEarnings");
         Double pendingAmount = (Double) earningSummary.get("pendingAmount");
         Double settledAmount = (Double) earningSummary.get("settledAmount");
 
-        model.addAttribute("doctor", doctor);
         model.addAttribute("earningSummary", earningSummary);
         model.addAttribute("allEarnings", allEarnings);
         model.addAttribute("totalEarnings", totalEarnings);
@@ -181,25 +156,20 @@ public class DoctorController {
     }
     // ADD NEW endpoint to view detailed earning breakdown
     @GetMapping("/earnings/details")
-    public String viewEarningsDetails(Authentication auth,
+    public String viewEarningsDetails(@AuthenticationPrincipal AccountPrincipal principal,
                                       @RequestParam(required = false) String startDate,
                                       @RequestParam(required = false) String endDate,
                                       Model model) {
-        String username = auth.getName();
-        Doctor doctor = doctorService.getDoctorByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
         List<DoctorEarning> earnings;
 
         if (startDate != null && endDate != null) {
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
-            earnings = doctorEarningService.getDoctorEarningsByDateRange(doctor.getId(), start, end);
+            earnings = doctorEarningService.getDoctorEarningsByDateRange(principal.getDoctorId(), start, end);
         } else {
-            earnings = doctorEarningService.getDoctorEarnings(doctor.getId());
+            earnings = doctorEarningService.getDoctorEarnings(principal.getDoctorId());
         }
 
-        model.addAttribute("doctor", doctor);
         model.addAttribute("earnings", earnings);
         model.addAttribute("startDate", startDate);
         model.addAttribute("endDate", endDate);
@@ -1,9 +1,10 @@
 package com.example.ayurlink.controller;
 
+import com.example.ayurlink.config.AccountPrincipal;
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.service.*;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -31,12 +32,8 @@ public class PatientController {
     private final TimeSlotService timeSlotService;
 
     @GetMapping("/dashboard")
-    public String dashboard(Authentication auth, Model model) {
-        String username = auth.getName();
-        Patient patient = patientService.getPatientByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-        List<Appointment> appointments = appointmentService.getPatientAppointments(patient.getId());
+    public String dashboard(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        List<Appointment> appointments = appointmentService.getPatientAppointments(principal.getPatientId());
 
         // Calculate statistics
         long totalAppointments = appointments.size();
@@ -59,7 +56,6 @@ public class PatientController {
                 .filter(a -> a.getStatus() == AppointmentStatus.SCHEDULED)
                 .count();
 
-        model.addAttribute("patient", patient);
         model.addAttribute("appointments", appointments);
         model.addAttribute("totalAppointments", totalAppointments);
         model.addAttribute("upcomingAppointments", upcomingAppointments);
@@ -102,26 +98,15 @@ public class PatientController {
                                   @RequestParam Long treatmentId,
                                   @RequestParam String appointmentDate,
                                   @RequestParam String appointmentTime,
-                                  Authentication auth,
+                                  @AuthenticationPrincipal AccountPrincipal principal,
                                   RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Patient patient = patientService.getPatientByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
             LocalDate date = LocalDate.parse(appointmentDate);
             LocalTime time = LocalTime.parse(appointmentTime);
 
-            // Validate the time slot is still available (prevents double-booking)
-            boolean isAvailable = timeSlotService.isTimeSlotAvailable(doctorId, date, time);
-            if (!isAvailable) {
-                redirectAttributes.addFlashAttribute("error",
-                        "This time slot is no longer available. Please select another time.");
-                return "redirect:/patient/book-appointment";
-            }
-
+            // Availability is checked inside the booking transaction (prevents double-booking)
             Appointment appointment = appointmentService.bookAppointment(
-                    patient.getId(), doctorId, treatmentId, date, time
+                    principal.getPatientId(), doctorId, treatmentId, date, time
             );
 
             redirectAttributes.addFlashAttribute("success",
@@ -134,12 +119,8 @@ public class PatientController {
     }
 
     @GetMapping("/appointments")
-    public String viewAppointments(Authentication auth, Model model) {
-        String username = auth.getName();
-        Patient patient = patientService.getPatientByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-        List<Appointment> appointments = appointmentService.getPatientAppointments(patient.getId());
+    public String viewAppointments(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        List<Appointment> appointments = appointmentService.getPatientAppointments(principal.getPatientId());
         model.addAttribute("appointments", appointments);
         return "patient/appointments";
     }
@@ -156,9 +137,8 @@ public class PatientController {
     }
 
     @GetMapping("/profile")
-    public String viewProfile(Authentication auth, Model model) {
-        String username = auth.getName();
-        Patient patient = patientService.getPatientByUsername(username)
+    public String viewProfile(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        Patient patient = patientService.getPatientById(principal.getPatientId())
                 .orElseThrow(() -> new RuntimeException("Patient not found"));
 
         model.addAttribute("patient", patient);
@@ -167,14 +147,10 @@ public class PatientController {
 
     @PostMapping("/profile/update")
     public String updateProfile(@ModelAttribute Patient patient,
-                                Authentication auth,
+                                @AuthenticationPrincipal AccountPrincipal principal,
                                 RedirectAttributes redirectAttributes) {
         try {
-            String username = auth.getName();
-            Patient existing = patientService.getPatientByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-            patientService.updatePatient(existing.getUsername(), patient);
+            patientService.updatePatient(principal.getUsername(), patient);
 
             redirectAttributes.addFlashAttribute("success", "Profile updated successfully");
         } catch (Exception e) {
@@ -184,12 +160,8 @@ public class PatientController {
     }
 
     @GetMapping("/payments")
-    public String viewPayments(Authentication auth, Model model) {
-        String username = auth.getName();
-        Patient patient = patientService.getPatientByUsername(username)
-                .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-        List<Payment> payments = paymentService.getPatientPayments(patient.getId());
+    public String viewPayments(@AuthenticationPrincipal AccountPrincipal principal, Model model) {
+        List<Payment> payments = paymentService.getPatientPayments(principal.getPatientId());
         model.addAttribute("payments", payments);
         return "patient/payments";
     }
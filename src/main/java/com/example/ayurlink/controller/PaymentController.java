@@ -1,14 +1,13 @@
 
 package com.example.ayurlink.controller;
+import com.example.ayurlink.config.AccountPrincipal;
 
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.service.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 
+import java.io.IOException;
 import java.util.Map;
 
 @Controller
@@ -25,28 +25,24 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final AppointmentService appointmentService;
-    private final PatientService patientService;
-    private final FileStorageService fileStorageService;
+    private final FileServingService fileServingService;
+    private final ReceiptIngestionService receiptIngestionService;
 
     // ==================== PATIENT PAYMENT ROUTES ====================
 
     @GetMapping("/create/{appointmentId}")
     public String showPaymentForm(@PathVariable("appointmentId") Long appointmentId,
-                                  Authentication auth,
+                                  @AuthenticationPrincipal AccountPrincipal principal,
                                   Model model,
                                   RedirectAttributes redirectAttributes) {
         try {
             System.out.println("=== PaymentController.showPaymentForm called ===");
             System.out.println("Appointment ID: " + appointmentId);
 
-            String username = auth.getName();
-            Patient patient = patientService.getPatientByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
             Appointment appointment = appointmentService.getAppointmentById(appointmentId)
                     .orElseThrow(() -> new RuntimeException("Appointment not found"));
 
-            if (!appointment.getPatient().getId().equals(patient.getId())) {
+            if (!appointment.getPatient().getId().equals(principal.getPatientId())) {
                 redirectAttributes.addFlashAttribute("error", "Unauthorized access");
                 return "redirect:/patient/appointments";
             }
@@ -85,20 +81,16 @@ public class PaymentController {
                                  @RequestParam String paymentMethod,
                                  @RequestParam(required = false) MultipartFile receiptFile,
                                  @RequestParam(required = false) String notes,
-                                 Authentication auth,
+                                 @AuthenticationPrincipal AccountPrincipal principal,
                                  RedirectAttributes redirectAttributes) {
         try {
             System.out.println("=== PaymentController.processPayment called ===");
             System.out.println("Payment Method: " + paymentMethod);
 
-            String username = auth.getName();
-            Patient patient = patientService.getPatientByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
             Appointment appointment = appointmentService.getAppointmentById(appointmentId)
                     .orElseThrow(() -> new RuntimeException("Appointment not found"));
 
-            if (!appointment.getPatient().getId().equals(patient.getId())) {
+            if (!appointment.getPatient().getId().equals(principal.getPatientId())) {
                 redirectAttributes.addFlashAttribute("error", "Unauthorized access");
                 return "redirect:/patient/appointments";
             }
@@ -118,7 +110,7 @@ public class PaymentController {
                         redirectAttributes.addFlashAttribute("error", "Please upload receipt file");
                         return "redirect:/payment/create/" + appointmentId;
                     }
-                    payment = paymentService.createReceiptUploadPayment(appointmentId, receiptFile, notes);
+                    payment = receiptIngestionService.submit(appointmentId, receiptFile, notes);
                     redirectAttributes.addFlashAttribute("success",
                             "Receipt uploaded! Awaiting verification. Receipt: " + payment.getReceiptNumber());
                     System.out.println("Receipt upload payment created with status: " + payment.getStatus());
@@ -140,20 +132,16 @@ public class PaymentController {
 
     @GetMapping("/receipt/{paymentId}")
     public String viewReceipt(@PathVariable("paymentId") Long paymentId,
-                              Authentication auth,
+                              @AuthenticationPrincipal AccountPrincipal principal,
                               Model model,
                               RedirectAttributes redirectAttributes) {
         try {
             System.out.println("=== PaymentController.viewReceipt called ===");
 
-            String username = auth.getName();
-            Patient patient = patientService.getPatientByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Patient not found"));
-
             Payment payment = paymentService.getPaymentById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found"));
 
-            if (!payment.getAppointment().getPatient().getId().equals(patient.getId())) {
+            if (!payment.getAppointment().getPatient().getId().equals(principal.getPatientId())) {
                 redirectAttributes.addFlashAttribute("error", "Unauthorized access");
                 return "redirect:/patient/payments";
             }
@@ -175,59 +163,35 @@ public class PaymentController {
     }
 
     @GetMapping("/receipt/download/{paymentId}")
-    public ResponseEntity<Resource> downloadReceipt(@PathVariable Long paymentId,
-                                                    Authentication auth) {
-
-        System.out.println("===== downloadReceipt called with paymentId: " + paymentId + " =====");
-
+    public void downloadReceipt(@PathVariable Long paymentId,
+                                @AuthenticationPrincipal AccountPrincipal principal,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         try {
-            System.out.println("=== downloadReceipt called with paymentId: " + paymentId + " ===");
-
             Payment payment = paymentService.getPaymentById(paymentId)
                     .orElseThrow(() -> new RuntimeException("Payment not found"));
 
             // Check authorization
-            String username = auth.getName();
-            boolean isAdmin = auth.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || a.getAuthority().equals("ROLE_SUPER_ADMIN"));
-
-            if (!isAdmin) {
+            if (!principal.isAdmin()) {
                 // Only non-admin users need to be the payment owner
-                Patient patient = patientService.getPatientByUsername(username)
-                        .orElseThrow(() -> new RuntimeException("Patient not found"));
-
-                if (!payment.getAppointment().getPatient().getId().equals(patient.getId())) {
-                    return ResponseEntity.status(403).build();
+                if (!payment.getAppointment().getPatient().getId().equals(principal.getPatientId())) {
+                    response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                    return;
                 }
             }
 
             // Admins can view any receipt
 
             if (payment.getReceiptFileName() == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Resource resource = fileStorageService.loadFileAsResource(payment.getReceiptFileName());
-
-            String contentType = "application/octet-stream";
-            String fileName = payment.getReceiptFileName();
-            if (fileName.endsWith(".pdf")) {
-                contentType = "application/pdf";
-            } else if (fileName.matches(".*\\.(jpg|jpeg)$")) {
-                contentType = "image/jpeg";
-            } else if (fileName.endsWith(".png")) {
-                contentType = "image/png";
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
             }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .body(resource);
-
-        } catch (Exception e) {
+            fileServingService.serve(payment.getReceiptFileName(), FileServingService.Disposition.ATTACHMENT, false,
+                    request, response);
+        } catch (RuntimeException e) {
             System.err.println("Error downloading receipt: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.notFound().build();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
     // Helper method to get payment status message
@@ -1,46 +1,37 @@
 package com.example.ayurlink.controller;
 
-import com.example.ayurlink.service.FileStorageService;
+import com.example.ayurlink.model.ImageSize;
+import com.example.ayurlink.service.FileServingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
 
 @Controller
 @RequiredArgsConstructor
 public class PublicImageController {
 
-    private final FileStorageService fileStorageService;
+    private final FileServingService fileServingService;
 
     /**
      * Public endpoint to serve treatment images
      * This allows the public treatments page to display images
+     * Pass size=THUMB, CARD or FULL for a resized copy instead of the upload
      */
     @GetMapping("/treatment-image/{filename}")
-    public ResponseEntity<Resource> getPublicTreatmentImage(@PathVariable String filename) {
+    public void getPublicTreatmentImage(@PathVariable String filename,
+                                        @RequestParam(required = false) ImageSize size,
+                                        HttpServletRequest request,
+                                        HttpServletResponse response) throws IOException {
         try {
-            Resource resource = fileStorageService.loadFileAsResource(filename);
-
-            String contentType = "application/octet-stream";
-            if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-                contentType = "image/jpeg";
-            } else if (filename.endsWith(".png")) {
-                contentType = "image/png";
-            } else if (filename.endsWith(".gif")) {
-                contentType = "image/gif";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CACHE_CONTROL, "max-age=3600") // Cache for 1 hour
-                    .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            fileServingService.serveImage(filename, size, true, request, response);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,13 @@
 package com.example.ayurlink.controller;
 
 import com.example.ayurlink.service.PaymentService;
+import com.example.ayurlink.service.RevenueRollupService;
+import com.example.ayurlink.service.StorageMaintenanceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
         import java.time.LocalDate;
 import java.util.Map;
@@ -15,12 +18,14 @@ import java.util.Map;
 public class SuperAdminController {
 
     private final PaymentService paymentService;
+    private final RevenueRollupService revenueRollupService;
+    private final StorageMaintenanceService storageMaintenanceService;
 
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
 
         LocalDate today = LocalDate.now();
-        Map<String, Object> dailySummary = paymentService.getDailySummary(today);
+        Map<String, Object> dailySummary = paymentService.getDailyTotals(today);
 
         model.addAttribute("dailySummary", dailySummary);
         return "superadmin/dashboard";
@@ -55,7 +60,7 @@ public class SuperAdminController {
     public String reports(Model model) {
 
         LocalDate today = LocalDate.now();
-        Map<String, Object> dailySummary = paymentService.getDailySummary(today);
+        Map<String, Object> dailySummary = paymentService.getDailyTotals(today);
         Map<String, Object> monthlySummary = paymentService.getMonthlySummary(
                 today.getYear(),
                 today.getMonthValue()
@@ -66,9 +71,43 @@ public class SuperAdminController {
         model.addAttribute("monthRevenue", monthlySummary.get("totalRevenue"));
         model.addAttribute("totalDoctors", systemOverview.get("totalDoctors"));
         model.addAttribute("totalPatients", systemOverview.get("totalPatients"));
+        model.addAttribute("storageReport", storageMaintenanceService.getLastReport());
+        model.addAttribute("storageMigration", storageMaintenanceService.getLastMigration());
+        model.addAttribute("storageBusy", storageMaintenanceService.isRunning());
 
         return "superadmin/reports";
     }
+
+    @PostMapping("/reports/rebuild-rollups")
+    public String rebuildRollups(RedirectAttributes redirectAttributes) {
+        try {
+            int processed = revenueRollupService.rebuild();
+            redirectAttributes.addFlashAttribute("success", "Revenue rollups rebuilt from " + processed + " payments");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", "Error rebuilding rollups: " + e.getMessage());
+        }
+        return "redirect:/superadmin/reports";
+    }
+
+    @PostMapping("/storage/migrate")
+    public String migrateStorage(RedirectAttributes redirectAttributes) {
+        if (storageMaintenanceService.startMigration()) {
+            redirectAttributes.addFlashAttribute("success", "Upload migration started in the background");
+        } else {
+            redirectAttributes.addFlashAttribute("error", "Storage maintenance is already running");
+        }
+        return "redirect:/superadmin/reports";
+    }
+
+    @PostMapping("/storage/scan")
+    public String scanStorage(RedirectAttributes redirectAttributes) {
+        if (storageMaintenanceService.startScan()) {
+            redirectAttributes.addFlashAttribute("success", "Storage check started in the background");
+        } else {
+            redirectAttributes.addFlashAttribute("error", "Storage maintenance is already running");
+        }
+        return "redirect:/superadmin/reports";
+    }
     @GetMapping("/reports/payment-methods")
     public String paymentMethodsReport(Model model) {
         Map<String, Object> paymentMethodData = paymentService.getPaymentMethodAnalysis();
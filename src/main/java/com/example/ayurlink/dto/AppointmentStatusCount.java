@@ -0,0 +1,6 @@
+package com.example.ayurlink.dto;
+
+import com.example.ayurlink.model.AppointmentStatus;
+
+public record AppointmentStatusCount(AppointmentStatus status, Long count) {
+}
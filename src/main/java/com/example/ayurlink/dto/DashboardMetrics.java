@@ -0,0 +1,15 @@
+package com.example.ayurlink.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Headline counts for the admin dashboard, as of computedAt
+ */
+public record DashboardMetrics(long treatmentCount,
+                               long doctorCount,
+                               long todayAppointmentCount,
+                               long totalPatientCount,
+                               LocalDate date,
+                               LocalDateTime computedAt) {
+}
@@ -0,0 +1,13 @@
+package com.example.ayurlink.dto;
+
+/**
+ * Headline earning figures for one doctor, computed in a single query
+ */
+public record DoctorEarningSummary(Double totalEarnings,
+                                   Double pendingAmount,
+                                   Double settledAmount,
+                                   Double todayEarnings,
+                                   Double weekEarnings,
+                                   Double monthEarnings,
+                                   Long earningCount) {
+}
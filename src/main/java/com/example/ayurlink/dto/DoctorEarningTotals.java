@@ -0,0 +1,11 @@
+package com.example.ayurlink.dto;
+
+/**
+ * Net earnings of one doctor: pending plus settled, and each on its own
+ */
+public record DoctorEarningTotals(Long doctorId, Double totalEarnings, Double pendingAmount, Double settledAmount) {
+
+    public static DoctorEarningTotals empty(Long doctorId) {
+        return new DoctorEarningTotals(doctorId, 0.0, 0.0, 0.0);
+    }
+}
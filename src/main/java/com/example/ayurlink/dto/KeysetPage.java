@@ -0,0 +1,111 @@
+package com.example.ayurlink.dto;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a listing ordered by id, navigated with the id of the first or
+ * last row shown (keyset / seek pagination). Each page is a single indexed
+ * range scan of at most size + 1 rows, however deep into the listing it is.
+ */
+public final class KeysetPage<T> {
+
+    public enum Order {
+        NEWEST, // id descending
+        OLDEST  // id ascending
+    }
+
+    /**
+     * Rows whose id is below (descending query) or above (ascending query) the cursor,
+     * ordered by id in the query's direction, limited by the pageable
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        List<T> fetch(long cursor, Pageable limit);
+    }
+
+    private final List<T> items;
+    private final Order order;
+    private final Long previousCursor;
+    private final Long nextCursor;
+
+    private KeysetPage(List<T> items, Order order, Long previousCursor, Long nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.order = order;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Load the page after the given id, the page before the given id, or the first page
+     * when neither is set
+     */
+    public static <T> KeysetPage<T> load(Order order, Long after, Long before, int size,
+                                         Query<T> descending, Query<T> ascending, ToLongFunction<T> idOf) {
+        Order effectiveOrder = order != null ? order : Order.NEWEST;
+        boolean newestFirst = effectiveOrder == Order.NEWEST;
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        if (before != null) {
+            // Walk backwards from the cursor, then flip the rows into display order
+            List<T> rows = new ArrayList<>((newestFirst ? ascending : descending).fetch(before, limit));
+            boolean hasPrevious = rows.size() > size;
+            if (hasPrevious) {
+                rows = new ArrayList<>(rows.subList(0, size));
+            }
+            Collections.reverse(rows);
+            if (rows.isEmpty()) {
+                return new KeysetPage<>(rows, effectiveOrder, null, null);
+            }
+            return new KeysetPage<>(rows, effectiveOrder,
+                    hasPrevious ? idOf.applyAsLong(rows.get(0)) : null,
+                    idOf.applyAsLong(rows.get(rows.size() - 1)));
+        }
+
+        long cursor = after != null ? after : (newestFirst ? Long.MAX_VALUE : 0L);
+        List<T> rows = new ArrayList<>((newestFirst ? descending : ascending).fetch(cursor, limit));
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = new ArrayList<>(rows.subList(0, size));
+        }
+        if (rows.isEmpty()) {
+            return new KeysetPage<>(rows, effectiveOrder, null, null);
+        }
+        return new KeysetPage<>(rows, effectiveOrder,
+                after != null ? idOf.applyAsLong(rows.get(0)) : null,
+                hasNext ? idOf.applyAsLong(rows.get(rows.size() - 1)) : null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public Long getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.ayurlink.dto;
+
+/**
+ * Number of payments and amount spent, grouped by patient name
+ */
+public record PatientPaymentTotals(String patientName, Long count, Double totalAmount) {
+}
@@ -0,0 +1,22 @@
+package com.example.ayurlink.dto;
+
+import com.example.ayurlink.model.PaymentMethod;
+import com.example.ayurlink.model.PaymentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of the payments CSV export, read directly from the query so no
+ * entities or lazy associations are loaded per row
+ */
+public record PaymentCsvRow(String receiptNumber,
+                            String transactionId,
+                            String patientName,
+                            String patientNic,
+                            String doctorName,
+                            String treatmentName,
+                            Double totalAmount,
+                            PaymentMethod paymentMethod,
+                            PaymentStatus status,
+                            LocalDateTime paymentDate) {
+}
@@ -0,0 +1,45 @@
+package com.example.ayurlink.dto;
+
+import com.example.ayurlink.model.Appointment;
+import com.example.ayurlink.model.Payment;
+import com.example.ayurlink.model.PaymentMethod;
+import com.example.ayurlink.model.PaymentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a payment that feed the revenue rollups, captured before and
+ * after a state change so the difference can be applied
+ */
+public record PaymentSnapshot(Long paymentId,
+                              LocalDateTime paymentDate,
+                              PaymentStatus status,
+                              PaymentMethod method,
+                              Long doctorId,
+                              String doctorName,
+                              Long treatmentId,
+                              String treatmentName,
+                              Double totalAmount,
+                              Double refundAmount,
+                              Double doctorFee,
+                              Double treatmentFee,
+                              Double clinicCharges) {
+
+    public static PaymentSnapshot of(Payment payment) {
+        Appointment appointment = payment.getAppointment();
+        return new PaymentSnapshot(
+                payment.getId(),
+                payment.getPaymentDate(),
+                payment.getStatus(),
+                payment.getPaymentMethod(),
+                appointment.getDoctor().getId(),
+                appointment.getDoctor().getFullName(),
+                appointment.getTreatment().getId(),
+                appointment.getTreatment().getName(),
+                payment.getTotalAmount(),
+                payment.getRefundAmount(),
+                payment.getDoctorFee(),
+                payment.getTreatmentFee(),
+                payment.getClinicCharges());
+    }
+}
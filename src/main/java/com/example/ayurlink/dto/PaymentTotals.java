@@ -0,0 +1,14 @@
+package com.example.ayurlink.dto;
+
+import com.example.ayurlink.model.PaymentMethod;
+import com.example.ayurlink.model.PaymentStatus;
+
+/**
+ * Payment count and amounts for one (status, method) group
+ */
+public record PaymentTotals(PaymentStatus status,
+                            PaymentMethod method,
+                            Long count,
+                            Double totalAmount,
+                            Double refundAmount) {
+}
@@ -0,0 +1,25 @@
+package com.example.ayurlink.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Result of cross-checking stored uploads against the records that refer to them.
+ * The name lists are capped; the counts are complete.
+ */
+public record StorageIntegrityReport(LocalDateTime scannedAt,
+                                     long durationMs,
+                                     int filesOnDisk,
+                                     int referencedFiles,
+                                     int legacyFiles,
+                                     int missingCount,
+                                     List<String> missing,
+                                     int orphanCount,
+                                     List<String> orphans,
+                                     int mismatchCount,
+                                     List<String> mismatches) {
+
+    public boolean isClean() {
+        return missingCount == 0 && orphanCount == 0 && mismatchCount == 0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ayurlink.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of moving flat, older-style uploads into the content-addressed layout
+ */
+public record StorageMigrationResult(LocalDateTime finishedAt,
+                                     long durationMs,
+                                     int migrated,
+                                     int skipped,
+                                     int failed) {
+}
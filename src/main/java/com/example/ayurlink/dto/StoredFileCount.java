@@ -0,0 +1,7 @@
+package com.example.ayurlink.dto;
+
+/**
+ * References recorded for a content-addressed blob in stored_files
+ */
+public record StoredFileCount(String fileName, Integer refCount) {
+}
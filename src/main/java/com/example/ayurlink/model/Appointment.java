@@ -10,12 +10,24 @@ import java.time.LocalTime;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@NamedEntityGraph(name = Appointment.GRAPH_DETAILS, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("treatment")
+})
+@Table(name = "appointments",
+        uniqueConstraints = @UniqueConstraint(name = Appointment.ACTIVE_SLOT_CONSTRAINT,
+                columnNames = {"doctor_id", "appointment_date", "appointment_time", "active_slot"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Appointment {
 
+    public static final String ACTIVE_SLOT_CONSTRAINT = "uk_appointment_active_slot";
+
+    // Patient, doctor and treatment - what every appointment list and detail screen shows
+    public static final String GRAPH_DETAILS = "Appointment.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -45,6 +57,14 @@ public class Appointment {
     @Column(name = "status", nullable = false, length = 20)
     private AppointmentStatus status;
 
+    /**
+     * TRUE while the appointment holds its slot and NULL once cancelled. NULLs never
+     * collide in a unique index, so a cancelled slot can be booked again while two
+     * live bookings of the same slot are rejected by the database.
+     */
+    @Column(name = "active_slot")
+    private Boolean activeSlot;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
@@ -57,8 +77,13 @@ public class Appointment {
         generateTicketNumber();
     }
 
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+        this.activeSlot = status == AppointmentStatus.CANCELLED ? null : Boolean.TRUE;
+    }
+
     private void generateTicketNumber() {
-        this.ticketNumber = "APT" + System.currentTimeMillis();
+        this.ticketNumber = Identifiers.next("APT");
     }
 }
 
@@ -0,0 +1,13 @@
+package com.example.ayurlink.model;
+
+/**
+ * Source of unique numeric identifiers for ticket, receipt and transaction numbers
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    default String nextId(String prefix) {
+        return prefix + nextId();
+    }
+}
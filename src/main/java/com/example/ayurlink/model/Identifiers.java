@@ -0,0 +1,22 @@
+package com.example.ayurlink.model;
+
+/**
+ * Entry point used by entities to number themselves in their @PrePersist callbacks.
+ * Entities are not Spring beans, so the configured generator is installed here at startup
+ * (see IdGeneratorConfig); until then a node-0 generator is used.
+ */
+public final class Identifiers {
+
+    private static volatile IdGenerator generator = new SnowflakeIdGenerator(0);
+
+    private Identifiers() {
+    }
+
+    public static void use(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    public static String next(String prefix) {
+        return generator.nextId(prefix);
+    }
+}
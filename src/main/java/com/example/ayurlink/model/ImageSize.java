@@ -0,0 +1,27 @@
+package com.example.ayurlink.model;
+
+/**
+ * Resized variants generated for each treatment image, by maximum width in pixels
+ */
+public enum ImageSize {
+    THUMB(160),
+    CARD(480),
+    FULL(1200);
+
+    private final int maxWidth;
+
+    ImageSize(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    /**
+     * Suffix used in derivative file names, e.g. treatment_&lt;uuid&gt;__card.jpg
+     */
+    public String getKey() {
+        return name().toLowerCase();
+    }
+}
@@ -4,15 +4,28 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.time.LocalDateTime;
 
 @Entity
+@NamedEntityGraph(name = Payment.GRAPH_DETAILS,
+        attributeNodes = @NamedAttributeNode(value = "appointment", subgraph = "appointment"),
+        subgraphs = @NamedSubgraph(name = "appointment", attributeNodes = {
+                @NamedAttributeNode("patient"),
+                @NamedAttributeNode("doctor"),
+                @NamedAttributeNode("treatment")
+        }))
 @Table(name = "payments")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Payment {
 
+    // Appointment with its patient, doctor and treatment - used by payment lists, receipts and reports
+    public static final String GRAPH_DETAILS = "Payment.details";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -41,8 +54,10 @@ public class Payment {
     @Column(nullable = false)
     private PaymentMethod paymentMethod;
 
+    // Plain VARCHAR rather than a database ENUM, so new statuses need no column change
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 30)
     private PaymentStatus status = PaymentStatus.PENDING;
 
     @Column(name = "transaction_id", unique = true)
@@ -108,12 +123,11 @@ public class Payment {
     }
 
     private void generateTransactionId() {
-        this.transactionId = "TXN" + System.currentTimeMillis() +
-                String.format("%04d", (int)(Math.random() * 10000));
+        this.transactionId = Identifiers.next("TXN");
     }
 
     private void generateReceiptNumber() {
-        this.receiptNumber = "RCP" + System.currentTimeMillis();
+        this.receiptNumber = Identifiers.next("RCP");
     }
 
     public void calculateTotal() {
@@ -2,6 +2,7 @@ package com.example.ayurlink.model;
 
 public enum PaymentStatus {
     PENDING,              // Payment initiated, awaiting completion
+    UPLOADING,            // Receipt received, file still being stored
     PENDING_VERIFICATION, // Receipt uploaded, awaiting admin verification
     SUCCESS,              // Payment completed and verified
     COMPLETED,            // Alternative for SUCCESS
@@ -0,0 +1,109 @@
+package com.example.ayurlink.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated payment totals for one period and one dimension value,
+ * e.g. (DAY, 2025-03-14, METHOD, "CASH"). Kept up to date from payment state
+ * changes so reports do not need to scan the payments table.
+ */
+@Entity
+@Table(name = "revenue_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup_bucket",
+                columnNames = {"period_type", "period_start", "dimension", "dim_key"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type", nullable = false, length = 10)
+    private RollupPeriod periodType;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RollupDimension dimension;
+
+    @Column(name = "dim_key", nullable = false, length = 100)
+    private String dimKey;
+
+    @Column(length = 255)
+    private String label; // Doctor or treatment name at the time of the last update
+
+    // All payments in the bucket, whatever their status
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount = 0L;
+
+    // Successful payments and their amounts
+    @Column(name = "success_count", nullable = false)
+    private Long successCount = 0L;
+
+    @Column(nullable = false)
+    private Double revenue = 0.0;
+
+    @Column(name = "doctor_fees", nullable = false)
+    private Double doctorFees = 0.0;
+
+    @Column(name = "treatment_fees", nullable = false)
+    private Double treatmentFees = 0.0;
+
+    @Column(name = "clinic_charges", nullable = false)
+    private Double clinicCharges = 0.0;
+
+    // Refunded payments
+    @Column(name = "refund_count", nullable = false)
+    private Long refundCount = 0L;
+
+    @Column(name = "refund_amount", nullable = false)
+    private Double refundAmount = 0.0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public static RevenueRollup empty(RollupPeriod periodType, LocalDate periodStart,
+                                      RollupDimension dimension, String dimKey) {
+        RevenueRollup rollup = new RevenueRollup();
+        rollup.setPeriodType(periodType);
+        rollup.setPeriodStart(periodStart);
+        rollup.setDimension(dimension);
+        rollup.setDimKey(dimKey);
+        return rollup;
+    }
+
+    public void addAll(RevenueRollup other) {
+        paymentCount += other.paymentCount;
+        successCount += other.successCount;
+        revenue += other.revenue;
+        doctorFees += other.doctorFees;
+        treatmentFees += other.treatmentFees;
+        clinicCharges += other.clinicCharges;
+        refundCount += other.refundCount;
+        refundAmount += other.refundAmount;
+        if (other.label != null) {
+            label = other.label;
+        }
+    }
+
+    public boolean isZero() {
+        return paymentCount == 0 && successCount == 0 && refundCount == 0
+                && revenue == 0 && doctorFees == 0 && treatmentFees == 0
+                && clinicCharges == 0 && refundAmount == 0;
+    }
+
+    public Double getNetRevenue() {
+        return revenue - refundAmount;
+    }
+}
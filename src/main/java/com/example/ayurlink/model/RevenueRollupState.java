@@ -0,0 +1,30 @@
+package com.example.ayurlink.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row (id 1) guarding the revenue rollups. Payment updates hold a shared
+ * lock on it while they adjust the rollups; a rebuild holds it exclusively, so
+ * the two never interleave, also across nodes. Created by migration V4.
+ */
+@Entity
+@Table(name = "revenue_rollup_state")
+@Data
+@NoArgsConstructor
+public class RevenueRollupState {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "rebuilt_at")
+    private LocalDateTime rebuiltAt;
+
+    @Column(name = "rebuilt_payments")
+    private Integer rebuiltPayments;
+}
@@ -0,0 +1,9 @@
+package com.example.ayurlink.model;
+
+public enum RollupDimension {
+    TOTAL,      // All payments in the period
+    METHOD,     // Keyed by PaymentMethod name
+    STATUS,     // Keyed by PaymentStatus name
+    DOCTOR,     // Keyed by doctor id
+    TREATMENT   // Keyed by treatment id
+}
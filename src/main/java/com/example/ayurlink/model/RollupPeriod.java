@@ -0,0 +1,12 @@
+package com.example.ayurlink.model;
+
+import java.time.LocalDate;
+
+public enum RollupPeriod {
+    DAY,    // One row per calendar day
+    MONTH;  // One row per calendar month, keyed by its first day
+
+    public LocalDate startOf(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+}
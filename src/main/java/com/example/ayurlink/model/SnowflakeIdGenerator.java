@@ -0,0 +1,67 @@
+package com.example.ayurlink.model;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 63-bit ids: 41 bits of milliseconds since 2024-01-01, 10 bits of node id
+ * and a 12 bit per-millisecond sequence. Ids from one node are strictly increasing and ids
+ * from nodes with different node ids never collide.
+ * <p>
+ * Lock-free: the last issued (timestamp, sequence) pair is packed into one AtomicLong and
+ * advanced with CAS. When the sequence runs out, or the wall clock moves backwards, the
+ * generator borrows the next millisecond instead of blocking.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong lastState = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public long nextId() {
+        long state;
+        long next;
+        do {
+            state = lastState.get();
+            long now = currentMillis() - EPOCH_MILLIS;
+            long lastMillis = state >>> SEQUENCE_BITS;
+
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((state & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = state + 1;
+            } else {
+                next = (lastMillis + 1) << SEQUENCE_BITS;
+            }
+        } while (!lastState.compareAndSet(state, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & MAX_SEQUENCE;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    protected long currentMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.ayurlink.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One content-addressed upload (&lt;sha256&gt;&lt;ext&gt;) and how many records refer to it.
+ * Identical uploads share the blob; it is removed once nothing refers to it.
+ */
+@Entity
+@Table(name = "stored_files",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stored_file_name", columnNames = "file_name"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_name", nullable = false, length = 100)
+    private String fileName;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Last reference change; unreferenced blobs get a grace period from here
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,157 @@
+package com.example.ayurlink.model;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Compiled form of a doctor's availability strings.
+ * Each entry looks like "MON 09:00-12:00"; several windows may be given for the same
+ * day either as separate entries or comma separated ("MON 09:00-12:00,14:00-17:00").
+ * Hours without minutes ("MON 9-12") are also accepted.
+ */
+public final class WeeklySchedule {
+
+    public static final WeeklySchedule EMPTY = new WeeklySchedule(new EnumMap<>(DayOfWeek.class));
+
+    private final Map<DayOfWeek, List<TimeWindow>> windowsByDay;
+
+    private WeeklySchedule(Map<DayOfWeek, List<TimeWindow>> windowsByDay) {
+        this.windowsByDay = windowsByDay;
+    }
+
+    /**
+     * Parse availability entries, rejecting any entry that cannot be understood
+     */
+    public static WeeklySchedule parse(List<String> entries) {
+        return compile(entries, false);
+    }
+
+    /**
+     * Parse availability entries, skipping entries that cannot be understood.
+     * Used for values that were stored before validation existed.
+     */
+    public static WeeklySchedule parseLenient(List<String> entries) {
+        return compile(entries, true);
+    }
+
+    public List<TimeWindow> getWindows(DayOfWeek day) {
+        return windowsByDay.getOrDefault(day, Collections.emptyList());
+    }
+
+    public boolean isAvailable(DayOfWeek day, LocalTime time) {
+        for (TimeWindow window : getWindows(day)) {
+            if (window.contains(time)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return windowsByDay.isEmpty();
+    }
+
+    private static WeeklySchedule compile(List<String> entries, boolean skipInvalid) {
+        if (entries == null || entries.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<DayOfWeek, List<TimeWindow>> parsed = new EnumMap<>(DayOfWeek.class);
+        for (String entry : entries) {
+            if (entry == null || entry.isBlank()) {
+                continue;
+            }
+            try {
+                parseEntry(entry.trim(), parsed);
+            } catch (IllegalArgumentException e) {
+                if (!skipInvalid) {
+                    throw e;
+                }
+            }
+        }
+
+        if (parsed.isEmpty()) {
+            return EMPTY;
+        }
+        Map<DayOfWeek, List<TimeWindow>> merged = new EnumMap<>(DayOfWeek.class);
+        parsed.forEach((day, windows) -> merged.put(day, mergeOverlapping(windows)));
+        return new WeeklySchedule(merged);
+    }
+
+    private static void parseEntry(String entry, Map<DayOfWeek, List<TimeWindow>> parsed) {
+        String[] parts = entry.split("\\s+", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid availability '" + entry + "'. Use e.g. MON 09:00-12:00");
+        }
+
+        DayOfWeek day = parseDay(parts[0], entry);
+        for (String range : parts[1].split(",")) {
+            String[] times = range.trim().split("-");
+            if (times.length != 2) {
+                throw new IllegalArgumentException("Invalid time range in availability '" + entry + "'");
+            }
+            LocalTime start = parseTime(times[0], entry);
+            LocalTime end = parseTime(times[1], entry);
+            if (!start.isBefore(end)) {
+                throw new IllegalArgumentException("Start time must be before end time in availability '" + entry + "'");
+            }
+            parsed.computeIfAbsent(day, d -> new ArrayList<>()).add(new TimeWindow(start, end));
+        }
+    }
+
+    private static DayOfWeek parseDay(String token, String entry) {
+        String prefix = token.trim().toUpperCase(Locale.ROOT);
+        if (prefix.length() >= 3) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day.name().startsWith(prefix.substring(0, 3))) {
+                    return day;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown day '" + token + "' in availability '" + entry + "'");
+    }
+
+    private static LocalTime parseTime(String token, String entry) {
+        String value = token.trim();
+        try {
+            if (value.matches("\\d{1,2}")) {
+                return LocalTime.of(Integer.parseInt(value), 0);
+            }
+            if (value.matches("\\d:\\d{2}")) {
+                value = "0" + value;
+            }
+            return LocalTime.parse(value);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid time '" + token + "' in availability '" + entry + "'");
+        }
+    }
+
+    private static List<TimeWindow> mergeOverlapping(List<TimeWindow> windows) {
+        List<TimeWindow> sorted = new ArrayList<>(windows);
+        sorted.sort(Comparator.comparing(TimeWindow::start));
+
+        List<TimeWindow> merged = new ArrayList<>();
+        for (TimeWindow window : sorted) {
+            if (!merged.isEmpty() && !window.start().isAfter(merged.get(merged.size() - 1).end())) {
+                TimeWindow last = merged.remove(merged.size() - 1);
+                LocalTime end = window.end().isAfter(last.end()) ? window.end() : last.end();
+                merged.add(new TimeWindow(last.start(), end));
+            } else {
+                merged.add(window);
+            }
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    /**
+     * Half-open availability window [start, end)
+     */
+    public record TimeWindow(LocalTime start, LocalTime end) {
+
+        public boolean contains(LocalTime time) {
+            return !time.isBefore(start) && time.isBefore(end);
+        }
+    }
+}
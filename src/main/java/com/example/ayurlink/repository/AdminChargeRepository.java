@@ -2,6 +2,8 @@ package com.example.ayurlink.repository;
 
 import com.example.ayurlink.model.AdminCharge;
 import com.example.ayurlink.model.ChargeStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,4 +27,29 @@ public interface AdminChargeRepository extends JpaRepository<AdminCharge, Long>
 
     @Query("SELECT SUM(a.clinicCharge) FROM AdminCharge a WHERE a.chargeDate BETWEEN :start AND :end")
     Double getTotalChargesByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+
+    // ==================== KEYSET LISTING ====================
+
+    String LISTING_FILTERS = "AND (:status IS NULL OR c.status = :status) " +
+            "AND (:doctorId IS NULL OR c.payment.appointment.doctor.id = :doctorId) " +
+            "AND (:fromDate IS NULL OR c.chargeDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR c.chargeDate <= :toDate) ";
+
+    @EntityGraph(attributePaths = {"payment", "payment.appointment"})
+    @Query("SELECT c FROM AdminCharge c WHERE c.id < :cursor " + LISTING_FILTERS + "ORDER BY c.id DESC")
+    List<AdminCharge> findPageDescending(@Param("cursor") long cursor,
+                                         @Param("status") ChargeStatus status,
+                                         @Param("doctorId") Long doctorId,
+                                         @Param("fromDate") LocalDateTime fromDate,
+                                         @Param("toDate") LocalDateTime toDate,
+                                         Pageable limit);
+
+    @EntityGraph(attributePaths = {"payment", "payment.appointment"})
+    @Query("SELECT c FROM AdminCharge c WHERE c.id > :cursor " + LISTING_FILTERS + "ORDER BY c.id ASC")
+    List<AdminCharge> findPageAscending(@Param("cursor") long cursor,
+                                        @Param("status") ChargeStatus status,
+                                        @Param("doctorId") Long doctorId,
+                                        @Param("fromDate") LocalDateTime fromDate,
+                                        @Param("toDate") LocalDateTime toDate,
+                                        Pageable limit);
+}
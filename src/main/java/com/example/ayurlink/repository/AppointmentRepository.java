@@ -1,8 +1,13 @@
 package com.example.ayurlink.repository;
 
+import com.example.ayurlink.dto.AppointmentStatusCount;
 import com.example.ayurlink.model.Appointment;
 import com.example.ayurlink.model.AppointmentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -12,13 +17,85 @@ import java.util.Optional;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+
+    // Appointment lists and detail pages render patient, doctor and treatment,
+    // so these finders fetch them in the same query. findById / findAll stay plain
+    // for the write paths, which rarely need all three.
+    @EntityGraph(Appointment.GRAPH_DETAILS)
+    Optional<Appointment> findDetailedById(Long id);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
+    @Query("SELECT a FROM Appointment a")
+    List<Appointment> findAllDetailed();
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     List<Appointment> findByPatientId(Long patientId);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     List<Appointment> findByDoctorId(Long doctorId);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     List<Appointment> findByAppointmentDate(LocalDate date);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     Optional<Appointment> findByTicketNumber(String ticketNumber);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     List<Appointment> findByStatus(AppointmentStatus status);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
     List<Appointment> findByDoctorIdAndStatus(Long doctorId, AppointmentStatus status);
 
+    // Served by idx_appointments_doctor_date
+    @EntityGraph(Appointment.GRAPH_DETAILS)
+    List<Appointment> findByDoctorIdAndAppointmentDateOrderByAppointmentTimeAsc(Long doctorId, LocalDate date);
+
     List<Appointment> findByDoctorIdAndAppointmentDateAndAppointmentTime(
             Long doctorId, LocalDate date, LocalTime time);
-}
\ No newline at end of file
+
+    boolean existsByDoctorIdAndAppointmentDateAndAppointmentTimeAndStatusNot(
+            Long doctorId, LocalDate date, LocalTime time, AppointmentStatus status);
+
+    @Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId " +
+            "AND a.appointmentDate = :date AND a.status <> :excludedStatus")
+    List<LocalTime> findBookedTimesByDoctorAndDate(@Param("doctorId") Long doctorId,
+                                                   @Param("date") LocalDate date,
+                                                   @Param("excludedStatus") AppointmentStatus excludedStatus);
+
+    @Query("SELECT new com.example.ayurlink.dto.AppointmentStatusCount(a.status, COUNT(a)) " +
+            "FROM Appointment a GROUP BY a.status")
+    List<AppointmentStatusCount> countGroupedByStatus();
+
+    long countByAppointmentDate(LocalDate appointmentDate);
+
+    @Query("SELECT COUNT(DISTINCT a.patient.id) FROM Appointment a")
+    long countDistinctPatients();
+
+    @Query("SELECT COUNT(DISTINCT a.doctor.id) FROM Appointment a")
+    long countDistinctDoctors();
+
+    // ==================== KEYSET LISTING ====================
+
+    String LISTING_FILTERS = "AND (:status IS NULL OR a.status = :status) " +
+            "AND (:doctorId IS NULL OR a.doctor.id = :doctorId) " +
+            "AND (:fromDate IS NULL OR a.appointmentDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR a.appointmentDate <= :toDate) ";
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
+    @Query("SELECT a FROM Appointment a WHERE a.id < :cursor " + LISTING_FILTERS + "ORDER BY a.id DESC")
+    List<Appointment> findPageDescending(@Param("cursor") long cursor,
+                                         @Param("status") AppointmentStatus status,
+                                         @Param("doctorId") Long doctorId,
+                                         @Param("fromDate") LocalDate fromDate,
+                                         @Param("toDate") LocalDate toDate,
+                                         Pageable limit);
+
+    @EntityGraph(Appointment.GRAPH_DETAILS)
+    @Query("SELECT a FROM Appointment a WHERE a.id > :cursor " + LISTING_FILTERS + "ORDER BY a.id ASC")
+    List<Appointment> findPageAscending(@Param("cursor") long cursor,
+                                        @Param("status") AppointmentStatus status,
+                                        @Param("doctorId") Long doctorId,
+                                        @Param("fromDate") LocalDate fromDate,
+                                        @Param("toDate") LocalDate toDate,
+                                        Pageable limit);
+}
@@ -1,35 +1,82 @@
 package com.example.ayurlink.repository;
 
+import com.example.ayurlink.dto.DoctorEarningSummary;
+import com.example.ayurlink.dto.DoctorEarningTotals;
 import com.example.ayurlink.model.DoctorEarning;
 import com.example.ayurlink.model.EarningStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DoctorEarningRepository extends JpaRepository<DoctorEarning, Long> {
 
+    @EntityGraph(attributePaths = {"payment", "payment.appointment", "payment.appointment.patient",
+            "payment.appointment.treatment"})
     List<DoctorEarning> findByDoctorId(Long doctorId);
 
-    List<DoctorEarning> findByDoctorIdAndStatus(Long doctorId, EarningStatus status);
+    @EntityGraph(attributePaths = {"payment", "payment.appointment", "payment.appointment.patient",
+            "payment.appointment.treatment"})
+    Page<DoctorEarning> findByDoctorId(Long doctorId, Pageable pageable);
+
+    // Served by idx_doctor_earnings_doctor_status_date, newest first without a filesort
+    @EntityGraph(attributePaths = {"payment", "payment.appointment", "payment.appointment.patient",
+            "payment.appointment.treatment"})
+    List<DoctorEarning> findByDoctorIdAndStatusOrderByPaymentDateDesc(Long doctorId, EarningStatus status);
 
     Optional<DoctorEarning> findByPaymentId(Long paymentId);
 
     List<DoctorEarning> findByPaymentDateBetween(LocalDateTime start, LocalDateTime end);
 
+    @EntityGraph(attributePaths = {"payment", "payment.appointment", "payment.appointment.patient",
+            "payment.appointment.treatment"})
     List<DoctorEarning> findByDoctorIdAndPaymentDateBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
 
     @Query("SELECT SUM(e.netEarning) FROM DoctorEarning e WHERE e.doctor.id = :doctorId AND e.status = :status")
     Double getTotalEarningsByDoctorAndStatus(@Param("doctorId") Long doctorId, @Param("status") EarningStatus status);
 
+    @Query("SELECT SUM(e.netEarning) FROM DoctorEarning e WHERE e.doctor.id = :doctorId AND e.status IN :statuses")
+    Double getTotalEarningsByDoctorAndStatuses(@Param("doctorId") Long doctorId,
+                                               @Param("statuses") Collection<EarningStatus> statuses);
+
     @Query("SELECT SUM(e.netEarning) FROM DoctorEarning e WHERE e.doctor.id = :doctorId " +
             "AND e.paymentDate BETWEEN :start AND :end")
     Double getTotalEarningsByDoctorAndDateRange(@Param("doctorId") Long doctorId,
                                                 @Param("start") LocalDateTime start,
                                                 @Param("end") LocalDateTime end);
+
+    @Query("SELECT new com.example.ayurlink.dto.DoctorEarningTotals(e.doctor.id, " +
+            "COALESCE(SUM(CASE WHEN e.status = :pending OR e.status = :settled THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.status = :pending THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.status = :settled THEN e.netEarning ELSE 0.0 END), 0.0)) " +
+            "FROM DoctorEarning e GROUP BY e.doctor.id")
+    List<DoctorEarningTotals> getEarningTotalsByDoctor(@Param("pending") EarningStatus pending,
+                                                       @Param("settled") EarningStatus settled);
+
+    @Query("SELECT new com.example.ayurlink.dto.DoctorEarningSummary(" +
+            "COALESCE(SUM(CASE WHEN e.status = :pending OR e.status = :settled THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.status = :pending THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.status = :settled THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.paymentDate BETWEEN :todayStart AND :todayEnd THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.paymentDate BETWEEN :weekStart AND :now THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COALESCE(SUM(CASE WHEN e.paymentDate BETWEEN :monthStart AND :now THEN e.netEarning ELSE 0.0 END), 0.0), " +
+            "COUNT(e)) " +
+            "FROM DoctorEarning e WHERE e.doctor.id = :doctorId")
+    DoctorEarningSummary getEarningSummary(@Param("doctorId") Long doctorId,
+                                           @Param("pending") EarningStatus pending,
+                                           @Param("settled") EarningStatus settled,
+                                           @Param("todayStart") LocalDateTime todayStart,
+                                           @Param("todayEnd") LocalDateTime todayEnd,
+                                           @Param("weekStart") LocalDateTime weekStart,
+                                           @Param("monthStart") LocalDateTime monthStart,
+                                           @Param("now") LocalDateTime now);
 }
@@ -1,6 +1,7 @@
 package com.example.ayurlink.repository;
 
 import com.example.ayurlink.model.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,4 +12,12 @@ import java.util.Optional;
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findBySpecialization(String specialization);
     Optional<Doctor> findByUsername(String username);
+
+    // Loads availability up front, for the profile and schedule pages
+    @EntityGraph(attributePaths = "availability")
+    Optional<Doctor> findDetailedById(Long id);
+
+    // Loads availability up front so the list can be cached outside a session
+    @EntityGraph(attributePaths = "availability")
+    List<Doctor> findAllByOrderByIdAsc();
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.ayurlink.repository;
+
+import com.example.ayurlink.dto.PaymentCsvRow;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * The payment CSV export query, kept apart from PaymentRepository because its
+ * fetch size depends on the database driver (see PaymentCsvExportImpl)
+ */
+public interface PaymentCsvExport {
+
+    /**
+     * Forward-only read of the CSV export rows. Must be consumed inside a transaction
+     * and closed; no other query may run on the connection until it is.
+     */
+    Stream<PaymentCsvRow> streamCsvRows(LocalDateTime start, LocalDateTime end);
+}
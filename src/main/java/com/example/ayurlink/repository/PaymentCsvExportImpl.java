@@ -0,0 +1,41 @@
+package com.example.ayurlink.repository;
+
+import com.example.ayurlink.dto.PaymentCsvRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Streams the export with a per-query fetch size (ayurlink.export.fetch-size). The
+ * default, Integer.MIN_VALUE, makes MySQL Connector/J stream rows one at a time
+ * instead of buffering the whole result, without turning on server-side cursors
+ * for every other query. H2 rejects negative fetch sizes, so its profile sets one.
+ */
+class PaymentCsvExportImpl implements PaymentCsvExport {
+
+    private static final String CSV_ROWS = "SELECT new com.example.ayurlink.dto.PaymentCsvRow(p.receiptNumber, " +
+            "p.transactionId, pa.fullName, pa.nic, d.fullName, t.name, p.totalAmount, p.paymentMethod, p.status, " +
+            "p.paymentDate) " +
+            "FROM Payment p JOIN p.appointment a JOIN a.patient pa JOIN a.doctor d JOIN a.treatment t " +
+            "WHERE p.paymentDate BETWEEN :start AND :end ORDER BY p.paymentDate, p.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ayurlink.export.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    @Override
+    public Stream<PaymentCsvRow> streamCsvRows(LocalDateTime start, LocalDateTime end) {
+        return entityManager.createQuery(CSV_ROWS, PaymentCsvRow.class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+}
@@ -1,8 +1,16 @@
 package com.example.ayurlink.repository;
 
+import com.example.ayurlink.dto.PatientPaymentTotals;
+import com.example.ayurlink.dto.PaymentSnapshot;
+import com.example.ayurlink.dto.PaymentTotals;
 import com.example.ayurlink.model.Payment;
 import com.example.ayurlink.model.PaymentStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,17 +21,110 @@ import java.util.Optional;
 
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentCsvExport {
+
+    // Screens that show a payment always show its patient, doctor and treatment,
+    // so the finders below load them in the same query. Status updates go
+    // through findForUpdate instead, which only locks the payment itself.
+    @EntityGraph(Payment.GRAPH_DETAILS)
+    Optional<Payment> findDetailedById(Long id);
+
+    // Status changes: holds the payment row until commit, so the status checked and the
+    // rollup snapshot taken from it cannot be changed underneath by a concurrent update.
+    // Only the payment row is locked; its appointment, doctor and treatment load after.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findForUpdate(@Param("id") Long id);
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
+    @Query("SELECT p FROM Payment p")
+    List<Payment> findAllDetailed();
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
     Optional<Payment> findByAppointmentId(Long appointmentId);
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
     List<Payment> findByAppointment_Patient_Id(Long patientId);
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
     List<Payment> findByPaymentDateBetween(LocalDateTime start, LocalDateTime end);
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
     List<Payment> findByStatus(PaymentStatus status);
 
+    // Ids only: each payment is then loaded through findForUpdate, which would hand back
+    // an entity already in the persistence context without rereading its status
+    @Query("SELECT p.id FROM Payment p WHERE p.status = :status AND p.paymentDate < :cutoff")
+    List<Long> findIdsByStatusAndPaymentDateBefore(@Param("status") PaymentStatus status,
+                                                   @Param("cutoff") LocalDateTime cutoff);
+
+    // Served by idx_payments_status_date
+    @EntityGraph(Payment.GRAPH_DETAILS)
     List<Payment> findByStatusOrderByPaymentDateDesc(PaymentStatus status);
 
+    @EntityGraph(Payment.GRAPH_DETAILS)
     List<Payment> findByPaymentDateBetweenOrderByPaymentDateDesc(LocalDateTime start, LocalDateTime end);
 
     @Query("SELECT SUM(p.totalAmount) FROM Payment p WHERE p.status IN ('SUCCESS', 'COMPLETED') " +
             "AND p.paymentDate BETWEEN :start AND :end")
     Double getTotalRevenueBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+
+    @Query("SELECT new com.example.ayurlink.dto.PaymentTotals(p.status, p.paymentMethod, COUNT(p), " +
+            "COALESCE(SUM(p.totalAmount), 0.0), COALESCE(SUM(p.refundAmount), 0.0)) " +
+            "FROM Payment p GROUP BY p.status, p.paymentMethod")
+    List<PaymentTotals> getTotalsByStatusAndMethod();
+
+    @Query("SELECT COUNT(DISTINCT p.appointment.patient.id) FROM Payment p")
+    long countDistinctPatients();
+
+    @Query("SELECT new com.example.ayurlink.dto.PatientPaymentTotals(pa.fullName, COUNT(p), " +
+            "COALESCE(SUM(p.totalAmount), 0.0)) " +
+            "FROM Payment p JOIN p.appointment a JOIN a.patient pa " +
+            "WHERE p.status = :status GROUP BY pa.fullName")
+    List<PatientPaymentTotals> getPatientTotalsByStatus(@Param("status") PaymentStatus status);
+
+    @Query("SELECT new com.example.ayurlink.dto.PaymentSnapshot(p.id, p.paymentDate, p.status, p.paymentMethod, " +
+            "d.id, d.fullName, t.id, t.name, p.totalAmount, p.refundAmount, p.doctorFee, p.treatmentFee, p.clinicCharges) " +
+            "FROM Payment p JOIN p.appointment a JOIN a.doctor d JOIN a.treatment t " +
+            "WHERE p.id > :afterId ORDER BY p.id")
+    List<PaymentSnapshot> findSnapshotsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ==================== KEYSET LISTING ====================
+
+    String LISTING_FILTERS = "AND (:status IS NULL OR p.status = :status) " +
+            "AND (:doctorId IS NULL OR p.appointment.doctor.id = :doctorId) " +
+            "AND (:fromDate IS NULL OR p.paymentDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR p.paymentDate <= :toDate) ";
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
+    @Query("SELECT p FROM Payment p WHERE p.id < :cursor " + LISTING_FILTERS + "ORDER BY p.id DESC")
+    List<Payment> findPageDescending(@Param("cursor") long cursor,
+                                     @Param("status") PaymentStatus status,
+                                     @Param("doctorId") Long doctorId,
+                                     @Param("fromDate") LocalDateTime fromDate,
+                                     @Param("toDate") LocalDateTime toDate,
+                                     Pageable limit);
+
+    @EntityGraph(Payment.GRAPH_DETAILS)
+    @Query("SELECT p FROM Payment p WHERE p.id > :cursor " + LISTING_FILTERS + "ORDER BY p.id ASC")
+    List<Payment> findPageAscending(@Param("cursor") long cursor,
+                                    @Param("status") PaymentStatus status,
+                                    @Param("doctorId") Long doctorId,
+                                    @Param("fromDate") LocalDateTime fromDate,
+                                    @Param("toDate") LocalDateTime toDate,
+                                    Pageable limit);
+
+    // ==================== STORAGE MAINTENANCE ====================
+
+    // One entry per payment, so a receipt shared by several payments appears several times
+    @Query("SELECT p.receiptFileName FROM Payment p WHERE p.receiptFileName IS NOT NULL")
+    List<String> findAllReceiptFileNames();
+
+    long countByReceiptFileName(String receiptFileName);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.receiptFileName = :newName, p.receiptFilePath = :newPath " +
+            "WHERE p.receiptFileName = :oldName")
+    int renameReceiptFile(@Param("oldName") String oldName, @Param("newName") String newName,
+                          @Param("newPath") String newPath);
+}
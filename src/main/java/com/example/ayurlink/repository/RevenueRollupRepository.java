@@ -0,0 +1,46 @@
+package com.example.ayurlink.repository;
+
+import com.example.ayurlink.model.RevenueRollup;
+import com.example.ayurlink.model.RollupPeriod;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, Long> {
+
+    List<RevenueRollup> findByPeriodTypeAndPeriodStart(RollupPeriod periodType, LocalDate periodStart);
+
+    List<RevenueRollup> findByPeriodTypeAndPeriodStartBetween(RollupPeriod periodType, LocalDate start, LocalDate end);
+
+    /**
+     * Add the measures of the given delta to its bucket, creating the bucket if needed.
+     * A single statement, so concurrent updates to the same bucket cannot lose increments.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollups (period_type, period_start, dimension, dim_key, label, " +
+            "payment_count, success_count, revenue, doctor_fees, treatment_fees, clinic_charges, " +
+            "refund_count, refund_amount, updated_at) " +
+            "VALUES (:#{#delta.periodType.name()}, :#{#delta.periodStart}, :#{#delta.dimension.name()}, " +
+            ":#{#delta.dimKey}, :#{#delta.label}, :#{#delta.paymentCount}, :#{#delta.successCount}, " +
+            ":#{#delta.revenue}, :#{#delta.doctorFees}, :#{#delta.treatmentFees}, :#{#delta.clinicCharges}, " +
+            ":#{#delta.refundCount}, :#{#delta.refundAmount}, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "label = COALESCE(VALUES(label), label), " +
+            "payment_count = payment_count + VALUES(payment_count), " +
+            "success_count = success_count + VALUES(success_count), " +
+            "revenue = revenue + VALUES(revenue), " +
+            "doctor_fees = doctor_fees + VALUES(doctor_fees), " +
+            "treatment_fees = treatment_fees + VALUES(treatment_fees), " +
+            "clinic_charges = clinic_charges + VALUES(clinic_charges), " +
+            "refund_count = refund_count + VALUES(refund_count), " +
+            "refund_amount = refund_amount + VALUES(refund_amount), " +
+            "updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    void addToBucket(@Param("delta") RevenueRollup delta);
+}
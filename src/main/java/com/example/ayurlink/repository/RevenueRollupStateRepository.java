@@ -0,0 +1,25 @@
+package com.example.ayurlink.repository;
+
+import com.example.ayurlink.model.RevenueRollupState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RevenueRollupStateRepository extends JpaRepository<RevenueRollupState, Integer> {
+
+    // Payment updates: many may hold it at once, but not while a rebuild does
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM RevenueRollupState s WHERE s.id = :id")
+    Optional<RevenueRollupState> findForShare(@Param("id") Integer id);
+
+    // Rebuilds: waits for payment updates in flight and holds off new ones until commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RevenueRollupState s WHERE s.id = :id")
+    Optional<RevenueRollupState> findForUpdate(@Param("id") Integer id);
+}
@@ -0,0 +1,51 @@
+package com.example.ayurlink.repository;
+
+import com.example.ayurlink.dto.StoredFileCount;
+import com.example.ayurlink.model.StoredFile;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    /**
+     * Record more references to a blob, creating its row on first upload.
+     * A single statement, so concurrent uploads of the same content cannot lose counts.
+     * Returns the rows affected, 0 when it changed nothing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (file_name, size_bytes, ref_count, created_at, updated_at) " +
+            "VALUES (:fileName, :sizeBytes, :count, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + VALUES(ref_count), updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int addReferences(@Param("fileName") String fileName, @Param("sizeBytes") long sizeBytes,
+                       @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE StoredFile f SET f.refCount = f.refCount - 1, f.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE f.fileName = :fileName AND f.refCount > 0")
+    int releaseReference(@Param("fileName") String fileName);
+
+    @Query("SELECT new com.example.ayurlink.dto.StoredFileCount(f.fileName, f.refCount) FROM StoredFile f")
+    List<StoredFileCount> findAllCounts();
+
+    @Query("SELECT f.refCount FROM StoredFile f WHERE f.fileName = :fileName")
+    Optional<Integer> findRefCountByFileName(@Param("fileName") String fileName);
+
+    @Query("SELECT f.fileName FROM StoredFile f WHERE f.refCount = 0 AND f.updatedAt < :cutoff ORDER BY f.id")
+    List<String> findUnreferencedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Held while a blob is deleted, so a concurrent upload of the same content waits and then restores it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StoredFile> findByFileName(String fileName);
+}
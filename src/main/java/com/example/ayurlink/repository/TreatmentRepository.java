@@ -2,6 +2,9 @@ package com.example.ayurlink.repository;
 
 import com.example.ayurlink.model.Treatment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,5 +12,17 @@ import java.util.List;
 @Repository
 public interface TreatmentRepository extends JpaRepository<Treatment, Long> {
     List<Treatment> findByIsActiveTrue();
+    long countByIsActiveTrue();
     List<Treatment> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+
+    // ==================== STORAGE MAINTENANCE ====================
+
+    @Query("SELECT t.image FROM Treatment t WHERE t.image IS NOT NULL AND t.image <> ''")
+    List<String> findAllImageNames();
+
+    long countByImage(String image);
+
+    @Modifying
+    @Query("UPDATE Treatment t SET t.image = :newName WHERE t.image = :oldName")
+    int renameImage(@Param("oldName") String oldName, @Param("newName") String newName);
+}
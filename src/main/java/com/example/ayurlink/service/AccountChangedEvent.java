@@ -0,0 +1,8 @@
+package com.example.ayurlink.service;
+
+/**
+ * Published when a user's username or name changes, so a signed-in principal
+ * built from the old values can be refreshed once the change commits
+ */
+public record AccountChangedEvent(Long userId) {
+}
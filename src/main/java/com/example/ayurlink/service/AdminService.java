@@ -1,9 +1,12 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.config.CacheConfig;
 import com.example.ayurlink.model.Admin;
 import com.example.ayurlink.model.Role;
 import com.example.ayurlink.repository.AdminRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +21,7 @@ public class AdminService {
 
     private final AdminRepository adminRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Admin createAdmin(Admin admin, String plainPassword, Boolean isSuperAdmin) {
         // Set role based on super admin status
@@ -39,18 +43,22 @@ public class AdminService {
         return adminRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<Admin> getAllAdmins() {
         return adminRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Admin> getSuperAdmins() {
         return adminRepository.findByIsSuperAdmin(true);
     }
 
+    @Transactional(readOnly = true)
     public List<Admin> getRegularAdmins() {
         return adminRepository.findByIsSuperAdmin(false);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.LOGIN_ACCOUNTS, allEntries = true)
     public Admin updateAdmin(Long id, Admin updatedAdmin) {
         Admin existing = adminRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Admin not found"));
@@ -59,9 +67,12 @@ public class AdminService {
         existing.setEmail(updatedAdmin.getEmail());
         existing.setPhone(updatedAdmin.getPhone());
 
-        return adminRepository.save(existing);
+        Admin saved = adminRepository.save(existing);
+        eventPublisher.publishEvent(new AccountChangedEvent(id));
+        return saved;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.LOGIN_ACCOUNTS, allEntries = true)
     public void deactivateAdmin(Long id) {
         Admin admin = adminRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Admin not found"));
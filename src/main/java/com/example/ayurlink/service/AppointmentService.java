@@ -1,9 +1,12 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.dto.KeysetPage;
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
@@ -20,9 +23,24 @@ public class AppointmentService {
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final TreatmentRepository treatmentRepository;
-
+    private final SlotBitmapService slotBitmapService;
+    private final SlotLockRegistry slotLockRegistry;
+    private final TimeSlotService timeSlotService;
+
+    private static final String SLOT_TAKEN_MESSAGE =
+            "This time slot is no longer available. Please select another time.";
+
+    /**
+     * Book a slot atomically: the slot is locked before anything is read, then
+     * re-checked against the database and written, so two concurrent requests
+     * for the same slot cannot both succeed. READ COMMITTED lets the re-check see
+     * a booking committed while this request waited for the lock.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Appointment bookAppointment(Long patientId, Long doctorId, Long treatmentId,
                                        LocalDate date, LocalTime time) {
+        slotLockRegistry.lockUntilTransactionEnds(doctorId, date, time);
+
         Patient patient = patientRepository.findById(patientId)
                 .orElseThrow(() -> new RuntimeException("Patient not found"));
         Doctor doctor = doctorRepository.findById(doctorId)
@@ -30,6 +48,8 @@ public class AppointmentService {
         Treatment treatment = treatmentRepository.findById(treatmentId)
                 .orElseThrow(() -> new RuntimeException("Treatment not found"));
 
+        checkSlotFree(doctorId, date, time);
+
         Appointment appointment = new Appointment();
         appointment.setPatient(patient);
         appointment.setDoctor(doctor);
@@ -38,43 +58,96 @@ public class AppointmentService {
         appointment.setAppointmentTime(time);
         appointment.setStatus(AppointmentStatus.SCHEDULED);
 
-        return appointmentRepository.save(appointment);
+        Appointment saved = saveSlotHolder(appointment);
+        slotBitmapService.markBooked(doctorId, date, time);
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public List<Appointment> getPatientAppointments(Long patientId) {
         return appointmentRepository.findByPatientId(patientId);
     }
 
+    @Transactional(readOnly = true)
     public List<Appointment> getDoctorAppointments(Long doctorId) {
         return appointmentRepository.findByDoctorId(doctorId);
     }
 
+    /**
+     * A doctor's appointments on one day, in time order
+     */
+    @Transactional(readOnly = true)
+    public List<Appointment> getDoctorAppointments(Long doctorId, LocalDate date) {
+        return appointmentRepository.findByDoctorIdAndAppointmentDateOrderByAppointmentTimeAsc(doctorId, date);
+    }
+
     public Appointment updateAppointmentStatus(Long appointmentId, AppointmentStatus status) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
+        AppointmentStatus previous = appointment.getStatus();
         appointment.setStatus(status);
-        return appointmentRepository.save(appointment);
+        Appointment saved = appointmentRepository.save(appointment);
+
+        if (previous != AppointmentStatus.CANCELLED && status == AppointmentStatus.CANCELLED) {
+            releaseSlot(saved);
+        } else if (previous == AppointmentStatus.CANCELLED && status != AppointmentStatus.CANCELLED) {
+            slotBitmapService.markBooked(saved.getDoctor().getId(),
+                    saved.getAppointmentDate(), saved.getAppointmentTime());
+        }
+        return saved;
     }
 
     public void cancelAppointment(Long appointmentId) {
         updateAppointmentStatus(appointmentId, AppointmentStatus.CANCELLED);
     }
 
+    /**
+     * The appointment has to be read to learn which doctor's slot to lock, so this
+     * runs READ COMMITTED: the check after the lock still sees current bookings.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Appointment rescheduleAppointment(Long appointmentId, LocalDate newDate, LocalTime newTime) {
         Appointment appointment = appointmentRepository.findById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
 
+        Long doctorId = appointment.getDoctor().getId();
+        boolean sameSlot = newDate.equals(appointment.getAppointmentDate())
+                && newTime.equals(appointment.getAppointmentTime());
+        if (!sameSlot) {
+            slotLockRegistry.lockUntilTransactionEnds(doctorId, newDate, newTime);
+            checkSlotFree(doctorId, newDate, newTime);
+        }
+
+        if (appointment.getStatus() != AppointmentStatus.CANCELLED) {
+            releaseSlot(appointment);
+        }
         appointment.setAppointmentDate(newDate);
         appointment.setAppointmentTime(newTime);
         appointment.setStatus(AppointmentStatus.RESCHEDULED);
 
-        return appointmentRepository.save(appointment);
+        Appointment saved = saveSlotHolder(appointment);
+        slotBitmapService.markBooked(doctorId, newDate, newTime);
+        return saved;
     }
 
 
     // ✅ Method used in AdminController
+    @Transactional(readOnly = true)
     public List<Appointment> getAllAppointments() {
-        return appointmentRepository.findAll();
+        return appointmentRepository.findAllDetailed();
+    }
+
+    /**
+     * One page of the admin appointment listing; every filter is optional
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Appointment> getAppointmentsPage(AppointmentStatus status, Long doctorId,
+                                                       LocalDate fromDate, LocalDate toDate,
+                                                       KeysetPage.Order order, Long after, Long before, int size) {
+        return KeysetPage.load(order, after, before, size,
+                (cursor, limit) -> appointmentRepository.findPageDescending(cursor, status, doctorId, fromDate, toDate, limit),
+                (cursor, limit) -> appointmentRepository.findPageAscending(cursor, status, doctorId, fromDate, toDate, limit),
+                Appointment::getId);
     }
 
     public Appointment saveAppointment(Appointment appointment) {
@@ -82,14 +155,20 @@ public class AppointmentService {
     }
 
     public void deleteAppointment(Long id) {
-        appointmentRepository.deleteById(id);
+        appointmentRepository.findById(id).ifPresent(appointment -> {
+            if (appointment.getStatus() != AppointmentStatus.CANCELLED) {
+                releaseSlot(appointment);
+            }
+            appointmentRepository.delete(appointment);
+        });
     }
 
+    @Transactional(readOnly = true)
     public List<Appointment> getTodaysAppointments() {
         return appointmentRepository.findByAppointmentDate(LocalDate.now());
     }
     public Optional<Appointment> getAppointmentById(Long id) {
-        return appointmentRepository.findById(id);
+        return appointmentRepository.findDetailedById(id);
     }
     public Appointment updateAppointment(Long id, Appointment appointment) {
         return appointmentRepository.save(appointment);
@@ -130,9 +209,45 @@ public class AppointmentService {
 
         appointment.setStatus(AppointmentStatus.CANCELLED);
         appointmentRepository.save(appointment);
+        releaseSlot(appointment);
     }
 
+    @Transactional(readOnly = true)
     public List<Appointment> getCompletedAppointmentsByDoctor(Long doctorId) {
         return appointmentRepository.findByDoctorIdAndStatus(doctorId, AppointmentStatus.COMPLETED);
     }
-}
\ No newline at end of file
+
+    private void releaseSlot(Appointment appointment) {
+        slotBitmapService.release(appointment.getDoctor().getId(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime());
+    }
+
+    /**
+     * Make sure the doctor works then and nobody holds the slot; call with the slot locked
+     */
+    private void checkSlotFree(Long doctorId, LocalDate date, LocalTime time) {
+        if (!timeSlotService.isWithinSchedule(doctorId, date, time)) {
+            throw new RuntimeException("The doctor is not available at this time. Please select another time.");
+        }
+        if (appointmentRepository.existsByDoctorIdAndAppointmentDateAndAppointmentTimeAndStatusNot(
+                doctorId, date, time, AppointmentStatus.CANCELLED)) {
+            throw new RuntimeException(SLOT_TAKEN_MESSAGE);
+        }
+    }
+
+    /**
+     * Flush immediately so a booking that races in from another node fails here on
+     * the unique slot key instead of at commit time
+     */
+    private Appointment saveSlotHolder(Appointment appointment) {
+        try {
+            return appointmentRepository.saveAndFlush(appointment);
+        } catch (DataIntegrityViolationException e) {
+            String cause = e.getMostSpecificCause().getMessage();
+            if (cause != null && cause.toLowerCase().contains(Appointment.ACTIVE_SLOT_CONSTRAINT)) {
+                throw new RuntimeException(SLOT_TAKEN_MESSAGE, e);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.dto.DashboardMetrics;
+import com.example.ayurlink.repository.AppointmentRepository;
+import com.example.ayurlink.repository.DoctorRepository;
+import com.example.ayurlink.repository.TreatmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin dashboard counts, computed with COUNT queries and kept as a snapshot
+ * that a background task refreshes every few seconds. Page views read the
+ * snapshot, so rendering the dashboard does not touch the database at all
+ * while it is fresh.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DashboardMetricsService {
+
+    // Stop refreshing when nobody has looked at the dashboard for this long
+    private static final long IDLE_AFTER_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final TreatmentRepository treatmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${ayurlink.dashboard.refresh-ms:5000}")
+    private long refreshMillis;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong lastReadAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * The latest snapshot. It is recomputed inline only when there is none yet, it is
+     * from another day, or the background refresh has fallen well behind (e.g. after
+     * an idle period).
+     */
+    public DashboardMetrics getMetrics() {
+        lastReadAt.set(System.nanoTime());
+        Snapshot current = snapshot.get();
+        if (current == null || current.isStale(maxAgeNanos())) {
+            current = compute();
+        }
+        return current.metrics();
+    }
+
+    /**
+     * Background refresh, skipped while the dashboard is not being viewed
+     */
+    @Scheduled(fixedDelayString = "${ayurlink.dashboard.refresh-ms:5000}",
+            initialDelayString = "${ayurlink.dashboard.refresh-ms:5000}")
+    public void refresh() {
+        if (System.nanoTime() - lastReadAt.get() > IDLE_AFTER_NANOS) {
+            return;
+        }
+        try {
+            compute();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh dashboard metrics: {}", e.getMessage());
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Snapshot compute() {
+        LocalDate today = LocalDate.now();
+        DashboardMetrics metrics = new DashboardMetrics(
+                treatmentRepository.countByIsActiveTrue(),
+                doctorRepository.count(),
+                appointmentRepository.countByAppointmentDate(today),
+                appointmentRepository.countDistinctPatients(),
+                today,
+                LocalDateTime.now());
+
+        Snapshot computed = new Snapshot(metrics, System.nanoTime());
+        snapshot.set(computed);
+        return computed;
+    }
+
+    private long maxAgeNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(refreshMillis * 3);
+    }
+
+    private record Snapshot(DashboardMetrics metrics, long computedAtNanos) {
+        boolean isStale(long maxAgeNanos) {
+            return System.nanoTime() - computedAtNanos > maxAgeNanos
+                    || !metrics.date().equals(LocalDate.now());
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.config.CacheConfig;
+import com.example.ayurlink.dto.DoctorEarningSummary;
+import com.example.ayurlink.dto.DoctorEarningTotals;
+import com.example.ayurlink.dto.KeysetPage;
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.repository.AdminChargeRepository;
 import com.example.ayurlink.repository.DoctorEarningRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +35,7 @@ public class DoctorEarningService {
 
     private final DoctorEarningRepository doctorEarningRepository;
     private final AdminChargeRepository adminChargeRepository;
+    private final CacheManager cacheManager;
 
     /**
      * Create earning records when payment is verified/approved by admin
@@ -59,43 +71,58 @@ public class DoctorEarningService {
 
         AdminCharge savedCharge = adminChargeRepository.save(adminCharge);
         log.info("Admin charge recorded - Amount: LKR {}", savedCharge.getClinicCharge());
+
+        evictSummary(savedEarning.getDoctor().getId());
     }
 
     /**
      * Get all earnings for a specific doctor
      */
+    @Transactional(readOnly = true)
     public List<DoctorEarning> getDoctorEarnings(Long doctorId) {
         return doctorEarningRepository.findByDoctorId(doctorId);
     }
 
+    /**
+     * One page of a doctor's earnings, newest first, with payment, patient and treatment loaded
+     */
+    @Transactional(readOnly = true)
+    public Page<DoctorEarning> getDoctorEarningsPage(Long doctorId, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), size,
+                Sort.by(Sort.Direction.DESC, "paymentDate", "id"));
+        return doctorEarningRepository.findByDoctorId(doctorId, pageRequest);
+    }
+
     /**
      * Get pending earnings for a doctor
      */
+    @Transactional(readOnly = true)
     public List<DoctorEarning> getPendingEarnings(Long doctorId) {
-        return doctorEarningRepository.findByDoctorIdAndStatus(doctorId, EarningStatus.PENDING);
+        return doctorEarningRepository.findByDoctorIdAndStatusOrderByPaymentDateDesc(doctorId, EarningStatus.PENDING);
     }
 
     /**
      * Get settled earnings for a doctor
      */
+    @Transactional(readOnly = true)
     public List<DoctorEarning> getSettledEarnings(Long doctorId) {
-        return doctorEarningRepository.findByDoctorIdAndStatus(doctorId, EarningStatus.SETTLED);
+        return doctorEarningRepository.findByDoctorIdAndStatusOrderByPaymentDateDesc(doctorId, EarningStatus.SETTLED);
     }
 
     /**
      * Calculate total earnings for a doctor (all time)
      */
+    @Transactional(readOnly = true)
     public Double getTotalDoctorEarnings(Long doctorId) {
-        List<DoctorEarning> earnings = doctorEarningRepository.findByDoctorId(doctorId);
-        return earnings.stream()
-                .filter(e -> e.getStatus() == EarningStatus.PENDING || e.getStatus() == EarningStatus.SETTLED)
-                .mapToDouble(DoctorEarning::getNetEarning)
-                .sum();
+        Double total = doctorEarningRepository.getTotalEarningsByDoctorAndStatuses(
+                doctorId, List.of(EarningStatus.PENDING, EarningStatus.SETTLED));
+        return total != null ? total : 0.0;
     }
 
     /**
      * Calculate pending earnings for a doctor
      */
+    @Transactional(readOnly = true)
     public Double getPendingEarningsAmount(Long doctorId) {
         return doctorEarningRepository.getTotalEarningsByDoctorAndStatus(doctorId, EarningStatus.PENDING);
     }
@@ -103,6 +130,7 @@ public class DoctorEarningService {
     /**
      * Calculate settled earnings for a doctor
      */
+    @Transactional(readOnly = true)
     public Double getSettledEarningsAmount(Long doctorId) {
         return doctorEarningRepository.getTotalEarningsByDoctorAndStatus(doctorId, EarningStatus.SETTLED);
     }
@@ -110,6 +138,7 @@ public class DoctorEarningService {
     /**
      * Get earnings for a specific date range
      */
+    @Transactional(readOnly = true)
     public List<DoctorEarning> getDoctorEarningsByDateRange(Long doctorId, LocalDate startDate, LocalDate endDate) {
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(LocalTime.MAX);
@@ -119,6 +148,7 @@ public class DoctorEarningService {
     /**
      * Calculate earnings for today
      */
+    @Transactional(readOnly = true)
     public Double getTodayEarnings(Long doctorId) {
         LocalDate today = LocalDate.now();
         LocalDateTime start = today.atStartOfDay();
@@ -131,6 +161,7 @@ public class DoctorEarningService {
     /**
      * Calculate earnings for this week
      */
+    @Transactional(readOnly = true)
     public Double getWeekEarnings(Long doctorId) {
         LocalDate today = LocalDate.now();
         LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
@@ -144,6 +175,7 @@ public class DoctorEarningService {
     /**
      * Calculate earnings for this month
      */
+    @Transactional(readOnly = true)
     public Double getMonthEarnings(Long doctorId) {
         LocalDate today = LocalDate.now();
         LocalDate startOfMonth = today.withDayOfMonth(1);
@@ -155,29 +187,55 @@ public class DoctorEarningService {
     }
 
     /**
-     * Get detailed earning summary for doctor
+     * Total, pending and settled earnings for every doctor with earnings, in one query.
+     * Doctors without earning records are absent; use DoctorEarningTotals.empty for them.
      */
-    public Map<String, Object> getDoctorEarningSummary(Long doctorId) {
-        Map<String, Object> summary = new HashMap<>();
+    @Transactional(readOnly = true)
+    public Map<Long, DoctorEarningTotals> getEarningTotalsByDoctor() {
+        Map<Long, DoctorEarningTotals> totals = new HashMap<>();
+        for (DoctorEarningTotals doctorTotals : doctorEarningRepository.getEarningTotalsByDoctor(
+                EarningStatus.PENDING, EarningStatus.SETTLED)) {
+            totals.put(doctorTotals.doctorId(), doctorTotals);
+        }
+        return totals;
+    }
 
-        Double totalEarnings = getTotalDoctorEarnings(doctorId);
-        Double pendingAmount = getPendingEarningsAmount(doctorId);
-        Double settledAmount = getSettledEarningsAmount(doctorId);
-        Double todayEarnings = getTodayEarnings(doctorId);
-        Double weekEarnings = getWeekEarnings(doctorId);
-        Double monthEarnings = getMonthEarnings(doctorId);
+    /**
+     * Get detailed earning summary for doctor. Cached briefly (ayurlink.earnings.summary-ttl)
+     * for the dashboard and earnings pages; the map is shared, so it is read-only.
+     * Loaded from the primary, not the replica, so a lagging replica is never cached.
+     */
+    @Cacheable(cacheNames = CacheConfig.EARNING_SUMMARIES, key = "#doctorId")
+    public Map<String, Object> getDoctorEarningSummary(Long doctorId) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
 
-        summary.put("totalEarnings", totalEarnings != null ? totalEarnings : 0.0);
-        summary.put("pendingAmount", pendingAmount != null ? pendingAmount : 0.0);
-        summary.put("settledAmount", settledAmount != null ? settledAmount : 0.0);
-        summary.put("todayEarnings", todayEarnings);
-        summary.put("weekEarnings", weekEarnings);
-        summary.put("monthEarnings", monthEarnings);
+        DoctorEarningSummary totals = doctorEarningRepository.getEarningSummary(doctorId,
+                EarningStatus.PENDING, EarningStatus.SETTLED,
+                today.atStartOfDay(), today.atTime(LocalTime.MAX),
+                startOfWeek.atStartOfDay(), today.withDayOfMonth(1).atStartOfDay(), now);
 
-        summary.put("pendingEarnings", getPendingEarnings(doctorId));
-        summary.put("settledEarnings", getSettledEarnings(doctorId));
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalEarnings", totals.totalEarnings());
+        summary.put("pendingAmount", totals.pendingAmount());
+        summary.put("settledAmount", totals.settledAmount());
+        summary.put("todayEarnings", totals.todayEarnings());
+        summary.put("weekEarnings", totals.weekEarnings());
+        summary.put("monthEarnings", totals.monthEarnings());
+        summary.put("earningCount", totals.earningCount());
+        return Collections.unmodifiableMap(summary);
+    }
 
-        return summary;
+    /**
+     * Drop a doctor's cached summary; the transaction-aware cache manager does it
+     * once the current transaction commits, so a read cannot re-cache the old figures
+     */
+    private void evictSummary(Long doctorId) {
+        Cache cache = cacheManager.getCache(CacheConfig.EARNING_SUMMARIES);
+        if (cache != null) {
+            cache.evict(doctorId);
+        }
     }
 
     /**
@@ -192,7 +250,9 @@ public class DoctorEarningService {
             earning.setNotes(notes);
         }
 
-        return doctorEarningRepository.save(earning);
+        DoctorEarning savedEarning = doctorEarningRepository.save(earning);
+        evictSummary(savedEarning.getDoctor().getId());
+        return savedEarning;
     }
 
     /**
@@ -211,6 +271,7 @@ public class DoctorEarningService {
             DoctorEarning earning = earningOpt.get();
             earning.setStatus(EarningStatus.CANCELLED);
             doctorEarningRepository.save(earning);
+            evictSummary(earning.getDoctor().getId());
             log.info("Doctor earning cancelled due to refund");
         }
 
@@ -228,6 +289,7 @@ public class DoctorEarningService {
     /**
      * Get total admin charges collected
      */
+    @Transactional(readOnly = true)
     public Double getTotalAdminCharges() {
         return adminChargeRepository.getTotalChargesByStatus(ChargeStatus.COLLECTED);
     }
@@ -235,6 +297,7 @@ public class DoctorEarningService {
     /**
      * Get admin charges for date range
      */
+    @Transactional(readOnly = true)
     public Double getAdminChargesByDateRange(LocalDate startDate, LocalDate endDate) {
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(LocalTime.MAX);
@@ -244,7 +307,28 @@ public class DoctorEarningService {
     /**
      * Get all admin charge records
      */
+    @Transactional(readOnly = true)
     public List<AdminCharge> getAllAdminCharges() {
         return adminChargeRepository.findAll();
     }
-}
\ No newline at end of file
+
+    /**
+     * One page of the admin charge listing; every filter is optional
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<AdminCharge> getAdminChargesPage(ChargeStatus status, Long doctorId,
+                                                       LocalDate fromDate, LocalDate toDate,
+                                                       KeysetPage.Order order, Long after, Long before, int size) {
+        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
+        LocalDateTime to = toDate != null ? toDate.atTime(LocalTime.MAX) : null;
+        return KeysetPage.load(order, after, before, size,
+                (cursor, limit) -> adminChargeRepository.findPageDescending(cursor, status, doctorId, from, to, limit),
+                (cursor, limit) -> adminChargeRepository.findPageAscending(cursor, status, doctorId, from, to, limit),
+                AdminCharge::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public long countAdminCharges() {
+        return adminChargeRepository.count();
+    }
+}
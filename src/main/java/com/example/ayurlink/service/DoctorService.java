@@ -1,9 +1,15 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.config.CacheConfig;
 import com.example.ayurlink.model.Doctor;
 import com.example.ayurlink.model.Role;
+import com.example.ayurlink.model.WeeklySchedule;
 import com.example.ayurlink.repository.DoctorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,32 +24,47 @@ public class DoctorService {
 
     private final DoctorRepository doctorRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @CacheEvict(cacheNames = CacheConfig.DOCTORS, allEntries = true)
     public Doctor createDoctor(Doctor doctor, String plainPassword) {
         // Set role and encode password
         doctor.setRole(Role.ROLE_DOCTOR);
         doctor.setPassword(passwordEncoder.encode(plainPassword));
         doctor.setIsActive(true);
 
+        // Reject malformed availability before saving
+        WeeklySchedule.parse(doctor.getAvailability());
         return doctorRepository.save(doctor);
     }
 
     public Optional<Doctor> getDoctorById(Long id) {
-        return doctorRepository.findById(id);
+        return doctorRepository.findDetailedById(id);
     }
 
     public Optional<Doctor> getDoctorByUsername(String username) {
         return doctorRepository.findByUsername(username);
     }
 
+    @Transactional(readOnly = true)
+    public long countDoctors() {
+        return doctorRepository.count();
+    }
+
+    @Cacheable(CacheConfig.DOCTORS)
     public List<Doctor> getAllDoctors() {
-        return doctorRepository.findAll();
+        return doctorRepository.findAllByOrderByIdAsc();
     }
 
+    @Transactional(readOnly = true)
     public List<Doctor> getDoctorsBySpecialization(String specialization) {
         return doctorRepository.findBySpecialization(specialization);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {CacheConfig.DOCTORS, CacheConfig.LOGIN_ACCOUNTS}, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.WEEKLY_SCHEDULES, key = "#id")
+    })
     public Doctor updateDoctor(Long id, Doctor updatedDoctor) {
         Doctor existing = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
@@ -57,20 +78,41 @@ public class DoctorService {
         existing.setBio(updatedDoctor.getBio());
         existing.setAvailability(updatedDoctor.getAvailability());
 
-        return doctorRepository.save(existing);
+        WeeklySchedule.parse(existing.getAvailability());
+        Doctor saved = doctorRepository.save(existing);
+        eventPublisher.publishEvent(new AccountChangedEvent(id));
+        return saved;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.DOCTORS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.WEEKLY_SCHEDULES, key = "#doctorId")
+    })
     public Doctor updateAvailability(Long doctorId, List<String> availability) {
         Doctor doctor = doctorRepository.findById(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
+
+        WeeklySchedule.parse(availability);
         doctor.setAvailability(availability);
         return doctorRepository.save(doctor);
     }
 
+    /**
+     * Get the compiled weekly schedule for a doctor.
+     * Parsed once per doctor and cached until the availability changes (or the TTL passes).
+     */
+    @Cacheable(cacheNames = CacheConfig.WEEKLY_SCHEDULES, key = "#doctorId")
+    public WeeklySchedule getWeeklySchedule(Long doctorId) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+        return WeeklySchedule.parseLenient(doctor.getAvailability());
+    }
+
+    @CacheEvict(cacheNames = {CacheConfig.DOCTORS, CacheConfig.LOGIN_ACCOUNTS}, allEntries = true)
     public void deleteDoctor(Long id) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
         doctor.setIsActive(false);
         doctorRepository.save(doctor);
     }
-}
\ No newline at end of file
+}
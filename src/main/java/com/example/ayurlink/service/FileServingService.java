@@ -0,0 +1,239 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.model.ImageSize;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes stored files (treatment images, receipts) to HTTP responses without
+ * reading them onto the heap. Handles conditional requests (strong ETag from a
+ * content hash, Last-Modified) and single byte ranges. The body goes out through
+ * Tomcat's sendfile where the connector supports it, otherwise through
+ * FileChannel.transferTo.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileServingService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this, a plain copy is cheaper than handing the file to the poller
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CACHED_ETAGS = 10_000;
+
+    private static final String IMMUTABLE = "max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+
+    private final Map<Path, FileTag> etags = new ConcurrentHashMap<>();
+
+    public enum Disposition {
+        INLINE, ATTACHMENT
+    }
+
+    /**
+     * Send a stored file, or 304 / 206 / 416 as the request's conditional and
+     * Range headers call for
+     *
+     * @param publicFile whether shared caches may keep the file (treatment images) or
+     *                   only the user's browser (receipts)
+     */
+    public void serve(String fileName, Disposition disposition, boolean publicFile,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(fileName, disposition, publicFile, true, request, response);
+    }
+
+    /**
+     * As above; pass allowImmutable = false when the URL may later return different
+     * content (e.g. it fell back to another file), so it is never cached as immutable
+     */
+    public void serve(String fileName, Disposition disposition, boolean publicFile, boolean allowImmutable,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = fileStorageService.getExistingFilePath(fileName);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = etag(path, length, lastModified);
+
+        boolean immutable = allowImmutable && fileStorageService.isImmutableName(fileName);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (publicFile ? "public, " : "private, ")
+                + (immutable ? IMMUTABLE : REVALIDATE));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // Sets ETag / Last-Modified and answers 304 when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(disposition, fileName));
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && length > 0 && rangeApplies(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multiple ranges are rare for files like these; answering with the whole file is allowed
+            if (ranges.size() == 1) {
+                HttpRange requested = ranges.get(0);
+                start = requested.getRangeStart(length);
+                end = requested.getRangeEnd(length);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        transfer(path, start, count, response.getOutputStream());
+    }
+
+    /**
+     * Send an image at the requested size (null for the original). Until the
+     * derivative exists the original is sent, not marked immutable, and the
+     * derivatives are queued (covers images uploaded before derivatives existed).
+     */
+    public void serveImage(String fileName, ImageSize size, boolean publicFile,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String resolved = imageDerivativeService.resolve(fileName, size);
+        boolean fallback = size != null && resolved.equals(fileName);
+        if (fallback) {
+            imageDerivativeService.generateDerivatives(fileName);
+        }
+        serve(resolved, Disposition.INLINE, publicFile, !fallback, request, response);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static void transfer(Path path, long start, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break; // file shrank underneath us
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * A Range request only applies when If-Range (if any) still names the current file
+     */
+    private static boolean rangeApplies(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        // HTTP dates have one-second precision; an unparseable date reads as -1
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_MODIFIED_SINCE, ifRange);
+        return lastModified / 1000 <= headers.getIfModifiedSince() / 1000;
+    }
+
+    private static String contentDisposition(Disposition disposition, String fileName) {
+        ContentDisposition.Builder builder = disposition == Disposition.ATTACHMENT
+                ? ContentDisposition.attachment()
+                : ContentDisposition.inline();
+        return builder.filename(fileName, StandardCharsets.UTF_8).build().toString();
+    }
+
+    /**
+     * Strong ETag from the file's SHA-256, computed once per (path, size, modified time)
+     */
+    private String etag(Path path, long length, long lastModified) throws IOException {
+        FileTag cached = etags.get(path);
+        if (cached != null && cached.length() == length && cached.lastModified() == lastModified) {
+            return cached.etag();
+        }
+
+        if (etags.size() >= MAX_CACHED_ETAGS) {
+            etags.clear();
+        }
+        String etag = "\"" + HexFormat.of().formatHex(sha256(path), 0, 16) + "\"";
+        etags.put(path, new FileTag(length, lastModified, etag));
+        return etag;
+    }
+
+    private static byte[] sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private record FileTag(long length, long lastModified, String etag) {
+    }
+}
@@ -2,72 +2,194 @@ package com.example.ayurlink.service;
 
 
 import com.example.ayurlink.config.FileStorageProperties;
+import com.example.ayurlink.repository.StoredFileRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * Stores uploads content-addressed: the name is the SHA-256 of the bytes plus the
+ * original extension, and the blob lives under two levels of hash-prefix
+ * directories (ab/cd/abcd...ef.pdf). Uploading the same content again only adds a
+ * reference in stored_files; deleteFile drops a reference, and blobs nothing refers
+ * to are removed by a periodic sweep. A blob put in place by a transaction that
+ * then rolls back is handed to the sweep the same way. Files stored under the older
+ * &lt;prefix&gt;_&lt;uuid&gt; names stay flat in the upload directory and are deleted directly.
+ */
 @Slf4j
 @Service
 public class FileStorageService {
 
+    // <sha256><ext>, or <sha256>__<size><ext> for image derivatives
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})(__[a-z]+)?(\\.[A-Za-z0-9]+)?");
+
+    // <prefix>_<uuid>.<ext> as generated by earlier versions, or <prefix>_<uuid>__<size>.<ext> for image derivatives
+    private static final Pattern UNIQUE_NAME = Pattern.compile(
+            ".+_[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(__[a-z]+)?(\\.[A-Za-z0-9]+)?");
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+
+    // Unreferenced blobs are kept this long before the sweep removes them
+    private static final long GRACE_MINUTES = 5;
+    private static final int SWEEP_BATCH_SIZE = 500;
+    // Uploads and staged receipts left in the temporary directory by a crash
+    private static final long TEMP_MAX_AGE_HOURS = 24;
+
     private final Path fileStorageLocation;
+    private final Path tempLocation;
+    private final StoredFileRepository storedFileRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
 
     @Autowired
-    public FileStorageService(FileStorageProperties fileStorageProperties) {
+    public FileStorageService(FileStorageProperties fileStorageProperties,
+                              StoredFileRepository storedFileRepository,
+                              PlatformTransactionManager transactionManager) {
         this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir())
                 .toAbsolutePath().normalize();
+        // Same file system as the blobs, so finished uploads can be moved into place atomically
+        this.tempLocation = this.fileStorageLocation.resolve(".tmp");
+        this.storedFileRepository = storedFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
 
         try {
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
         }
     }
 
-    public String storeFile(MultipartFile file, String prefix) {
-        // Normalize file name
-        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
+    /**
+     * Store an upload and return its content-addressed name. The bytes are hashed
+     * while they are written to a temporary file, so the upload is read only once;
+     * if the content is already stored, the temporary file is discarded. Must run in
+     * the transaction that saves the record referring to the file.
+     */
+    public String storeFile(MultipartFile file) {
+        String originalFileName = originalFileName(file);
+        String fileExtension = extension(originalFileName);
 
+        Path temp = null;
         try {
-            // Check if the file's name contains invalid characters
-            if (originalFileName.contains("..")) {
-                throw new RuntimeException("Invalid file path: " + originalFileName);
+            temp = Files.createTempFile(this.tempLocation, "upload", ".tmp");
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
             }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + fileExtension;
+            moveIntoPlace(temp, fileName, size);
+            return fileName;
 
-            // Generate unique file name
-            String fileExtension = "";
-            if (originalFileName.contains(".")) {
-                fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-            }
-            String fileName = prefix + "_" + UUID.randomUUID().toString() + fileExtension;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
 
-            // Copy file to the target location
-            Path targetLocation = this.fileStorageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    // ==================== STAGED UPLOADS ====================
 
-            log.info("File stored successfully: {}", fileName);
+    /**
+     * Take an upload out of the request into the staging directory, so it can be
+     * stored after the request has finished. The container keeps large uploads in a
+     * temporary file, which is normally renamed here rather than copied.
+     */
+    public StagedFile stage(MultipartFile file) {
+        String originalFileName = originalFileName(file);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(this.tempLocation, "staged", ".tmp");
+            file.transferTo(temp.toFile());
+            return new StagedFile(temp, originalFileName, extension(originalFileName));
+        } catch (IOException ex) {
+            deleteQuietly(temp);
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        }
+    }
+
+    /**
+     * Hash a staged upload and flush it to disk, returning the name it will be stored
+     * under. This is the slow part, so it runs before the transaction that stores it.
+     */
+    public String prepare(StagedFile staged) {
+        try {
+            String fileName = contentHash(staged.path()) + staged.extension();
+            try (FileChannel channel = FileChannel.open(staged.path(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
             return fileName;
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + staged.originalFileName() + ". Please try again!", ex);
+        }
+    }
 
+    /**
+     * Move a prepared upload into place under its content-addressed name. Must run in
+     * the transaction that saves the record referring to the file.
+     */
+    public void storeStaged(StagedFile staged, String fileName) {
+        try {
+            moveIntoPlace(staged.path(), fileName, Files.size(staged.path()));
         } catch (IOException ex) {
-            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+            throw new RuntimeException("Could not store file " + staged.originalFileName() + ". Please try again!", ex);
         }
     }
 
+    /**
+     * Delete a staged upload; does nothing once it has been stored
+     */
+    public void discard(StagedFile staged) {
+        deleteQuietly(staged.path());
+    }
+
+    /**
+     * An upload copied out of its request into the staging directory
+     */
+    public record StagedFile(Path path, String originalFileName, String extension) {
+    }
+
     public Resource loadFileAsResource(String fileName) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+            Path filePath = getFilePath(fileName);
             Resource resource = new UrlResource(filePath.toUri());
 
             if (resource.exists()) {
@@ -80,13 +202,323 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Where a stored name lives on disk (sharded for content-addressed names),
+     * refusing names that resolve outside the storage directory
+     */
+    public Path getFilePath(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED.matcher(fileName);
+        Path filePath = matcher.matches()
+                ? this.fileStorageLocation.resolve(shardDirectory(matcher.group(1))).resolve(fileName)
+                : this.fileStorageLocation.resolve(fileName);
+        filePath = filePath.normalize();
+        if (!filePath.startsWith(this.fileStorageLocation) || filePath.equals(this.fileStorageLocation)) {
+            throw new RuntimeException("Invalid file path: " + fileName);
+        }
+        return filePath;
+    }
+
+    /**
+     * Path of a stored file, refusing names that resolve outside the storage directory
+     */
+    public Path getExistingFilePath(String fileName) {
+        Path filePath = getFilePath(fileName);
+        if (!Files.isRegularFile(filePath)) {
+            throw new RuntimeException("File not found: " + fileName);
+        }
+        return filePath;
+    }
+
+    public boolean exists(String fileName) {
+        try {
+            return Files.isRegularFile(getFilePath(fileName));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the stored name can never refer to different content: content-addressed
+     * names, and the random names earlier versions stored uploads under
+     */
+    public boolean isImmutableName(String fileName) {
+        return CONTENT_ADDRESSED.matcher(fileName).matches() || UNIQUE_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Release one reference to a file. A content-addressed blob is only removed
+     * (with its image derivatives) once nothing refers to it; older files are
+     * deleted straight away.
+     */
     public boolean deleteFile(String fileName) {
+        if (CONTENT_ADDRESSED.matcher(fileName).matches()) {
+            return storedFileRepository.releaseReference(fileName) > 0;
+        }
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
+            Path filePath = getFilePath(fileName);
+            deleteDerivatives(filePath);
             return Files.deleteIfExists(filePath);
-        } catch (IOException ex) {
+        } catch (IOException | RuntimeException ex) {
             log.error("Error deleting file: {}", fileName, ex);
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Remove blobs that have had no references for the grace period
+     */
+    @Scheduled(fixedDelayString = "${ayurlink.storage.sweep-interval-ms:600000}", initialDelay = 60_000)
+    public void removeUnreferencedFiles() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(GRACE_MINUTES);
+        List<String> fileNames = storedFileRepository.findUnreferencedBefore(cutoff, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        int removed = 0;
+        for (String fileName : fileNames) {
+            try {
+                Boolean deleted = transactionTemplate.execute(status -> removeIfUnreferenced(fileName));
+                if (Boolean.TRUE.equals(deleted)) {
+                    removed++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not remove unreferenced file {}: {}", fileName, e.getMessage());
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} unreferenced stored files", removed);
+        }
+        removeAbandonedTemporaryFiles();
+    }
+
+    // ==================== LEGACY MIGRATION / INTEGRITY ====================
+
+    public boolean isContentAddressed(String fileName) {
+        return CONTENT_ADDRESSED.matcher(fileName).matches();
+    }
+
+    /**
+     * Whether a stored name is a resized copy of an image rather than an upload
+     */
+    public boolean isDerivative(String fileName) {
+        Matcher contentAddressed = CONTENT_ADDRESSED.matcher(fileName);
+        if (contentAddressed.matches()) {
+            return contentAddressed.group(2) != null;
+        }
+        Matcher unique = UNIQUE_NAME.matcher(fileName);
+        return unique.matches() && unique.group(1) != null;
+    }
+
+    /**
+     * Names of the uploads (not derivatives) on disk: content-addressed blobs in the
+     * shard directories, and files still stored flat under older names
+     */
+    public Set<String> listStoredFiles() {
+        Set<String> fileNames = new HashSet<>();
+        try (Stream<Path> paths = Files.walk(this.fileStorageLocation, 3)) {
+            paths.filter(path -> !path.startsWith(this.tempLocation))
+                    .filter(Files::isRegularFile)
+                    .forEach(path -> {
+                        String fileName = path.getFileName().toString();
+                        boolean flat = path.getParent().equals(this.fileStorageLocation);
+                        if (!isDerivative(fileName) && (flat || isContentAddressed(fileName))) {
+                            fileNames.add(fileName);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new RuntimeException("Could not list stored files", e);
+        }
+        return fileNames;
+    }
+
+    /**
+     * Content-addressed name a file stored under an older name would get
+     */
+    public String contentAddressedName(String legacyFileName) {
+        if (isContentAddressed(legacyFileName)) {
+            throw new RuntimeException("Already content-addressed: " + legacyFileName);
+        }
+        try {
+            return contentHash(getExistingFilePath(legacyFileName)) + extension(legacyFileName);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read " + legacyFileName, e);
+        }
+    }
+
+    /**
+     * Copy a file stored under an older name into the sharded layout as fileName and
+     * record the references to it. Like storeFile, the reference is taken before the
+     * blob is put in place, and this must run in the transaction that repoints the
+     * records. The old file is left for the caller to delete after commit.
+     */
+    public void importLegacyFile(String legacyFileName, String fileName, int references) {
+        Path source = getExistingFilePath(legacyFileName);
+        Path temp = null;
+        try {
+            addReferences(fileName, Files.size(source), references);
+
+            Path targetLocation = getFilePath(fileName);
+            if (!Files.exists(targetLocation)) {
+                Files.createDirectories(targetLocation.getParent());
+                temp = Files.createTempFile(this.tempLocation, "import", ".tmp");
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+                try {
+                    Files.move(temp, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+                    sweepIfRolledBack(fileName, Files.size(targetLocation));
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently with identical content
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not import " + legacyFileName, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Record a reference to fileName and move the finished temporary file there, or
+     * drop it when the content is already stored. Taking the reference first makes a
+     * sweep deleting the same blob finish before we look for it.
+     */
+    private void moveIntoPlace(Path temp, String fileName, long size) throws IOException {
+        addReferences(fileName, size, 1);
+
+        Path targetLocation = getFilePath(fileName);
+        if (Files.exists(targetLocation)) {
+            log.info("File already stored, reusing: {}", fileName);
+            return;
+        }
+        Files.createDirectories(targetLocation.getParent());
+        try {
+            Files.move(temp, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+            sweepIfRolledBack(fileName, size);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently with identical content
+        }
+        log.info("File stored successfully: {}", fileName);
+    }
+
+    /**
+     * An upsert that waited on the row while the sweep deleted it can come back having
+     * changed nothing (H2 does this). The deletion has committed by then, so a second
+     * attempt inserts a fresh row.
+     */
+    private void addReferences(String fileName, long size, int count) {
+        if (storedFileRepository.addReferences(fileName, size, count) == 0
+                && storedFileRepository.addReferences(fileName, size, count) == 0) {
+            throw new RuntimeException("Could not record a reference to " + fileName);
+        }
+    }
+
+    /**
+     * A rollback takes back the reference (and, on first upload, the stored_files row)
+     * but leaves the blob this transaction put in place. Record it as unreferenced
+     * afterwards, so the sweep removes it after the grace period unless an upload of
+     * the same content has taken a reference by then.
+     */
+    private void sweepIfRolledBack(String fileName, long size) {
+        TransactionCallbacks.afterRollback(() -> {
+            try {
+                newTransactionTemplate.executeWithoutResult(
+                        status -> addReferences(fileName, size, 0));
+            } catch (RuntimeException e) {
+                // Left without a stored_files row, the integrity scan reports it as an orphan
+                log.warn("Could not hand rolled back file {} to the sweep: {}", fileName, e.getMessage());
+            }
+        });
+    }
+
+    private static String originalFileName(MultipartFile file) {
+        // Normalize file name
+        String originalFileName = StringUtils.cleanPath(String.valueOf(file.getOriginalFilename()));
+
+        // Check if the file's name contains invalid characters
+        if (originalFileName.contains("..")) {
+            throw new RuntimeException("Invalid file path: " + originalFileName);
+        }
+        return originalFileName;
+    }
+
+    private static String contentHash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void removeAbandonedTemporaryFiles() {
+        Instant cutoff = Instant.now().minus(TEMP_MAX_AGE_HOURS, ChronoUnit.HOURS);
+        try (DirectoryStream<Path> temporaryFiles = Files.newDirectoryStream(this.tempLocation)) {
+            for (Path temporaryFile : temporaryFiles) {
+                if (Files.getLastModifiedTime(temporaryFile).toInstant().isBefore(cutoff)) {
+                    deleteQuietly(temporaryFile);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean up temporary files: {}", e.getMessage());
+        }
+    }
+
+    private boolean removeIfUnreferenced(String fileName) {
+        return storedFileRepository.findByFileName(fileName)
+                .filter(storedFile -> storedFile.getRefCount() == 0)
+                .map(storedFile -> {
+                    try {
+                        Path filePath = getFilePath(fileName);
+                        deleteDerivatives(filePath);
+                        Files.deleteIfExists(filePath);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Could not delete " + fileName, e);
+                    }
+                    storedFileRepository.delete(storedFile);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Delete the &lt;name&gt;__&lt;size&gt;.&lt;ext&gt; copies generated next to an image
+     */
+    private static void deleteDerivatives(Path original) throws IOException {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        try (DirectoryStream<Path> derivatives = Files.newDirectoryStream(original.getParent(), base + "__*")) {
+            for (Path derivative : derivatives) {
+                Files.deleteIfExists(derivative);
+            }
+        }
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0 && EXTENSION.matcher(fileName.substring(dot)).matches()) {
+            return fileName.substring(dot).toLowerCase();
+        }
+        return "";
+    }
+
+    private static Path shardDirectory(String hash) {
+        return Paths.get(hash.substring(0, 2), hash.substring(2, 4));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file {}", path);
+        }
+    }
+}
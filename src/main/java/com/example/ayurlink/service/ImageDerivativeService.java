@@ -0,0 +1,193 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.config.AsyncConfig;
+import com.example.ayurlink.model.ImageSize;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates resized copies of treatment images (see {@link ImageSize}) with
+ * javax.imageio / Java2D, next to the original as &lt;name&gt;__&lt;size&gt;.&lt;ext&gt;
+ * (FileStorageService removes them together with the original).
+ * JPEG originals produce JPEG derivatives; everything else produces PNG so
+ * transparency survives. Until a derivative exists the original is served.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageDerivativeService {
+
+    private static final float JPEG_QUALITY = 0.82f;
+    // Refuse to decode anything bigger (about 160 MB as ARGB) - decompression bombs
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+    private static final int MAX_UNREADABLE = 10_000;
+
+    private final FileStorageService fileStorageService;
+
+    // Originals queued or being processed, so on-demand requests do not pile up
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Originals ImageIO cannot decode (e.g. WebP); they are always served as uploaded
+    private final Set<String> unreadable = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stored file to serve for an image at a size: the derivative once it exists,
+     * otherwise the original
+     */
+    public String resolve(String fileName, ImageSize size) {
+        if (size == null) {
+            return fileName;
+        }
+        String derivative = derivativeName(fileName, size);
+        return fileStorageService.exists(derivative) ? derivative : fileName;
+    }
+
+    /**
+     * Generate every size for a stored image in the background
+     */
+    @Async(AsyncConfig.IMAGE_EXECUTOR)
+    public void generateDerivatives(String fileName) {
+        if (unreadable.contains(fileName) || !inFlight.add(fileName)) {
+            return;
+        }
+        try {
+            createDerivatives(fileName);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not create derivatives for {}: {}", fileName, e.getMessage());
+        } finally {
+            inFlight.remove(fileName);
+        }
+    }
+
+    public static String derivativeName(String fileName, ImageSize size) {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return base + "__" + size.getKey() + (isJpeg(fileName) ? ".jpg" : ".png");
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void createDerivatives(String fileName) throws IOException {
+        Path source = fileStorageService.getExistingFilePath(fileName);
+        BufferedImage original = read(source);
+        if (original == null) {
+            log.debug("{} is not a readable image, no derivatives", fileName);
+            if (unreadable.size() >= MAX_UNREADABLE) {
+                unreadable.clear();
+            }
+            unreadable.add(fileName);
+            return;
+        }
+
+        boolean jpeg = isJpeg(fileName);
+        long started = System.nanoTime();
+        for (ImageSize size : ImageSize.values()) {
+            // Never upscale; a small original still gets a re-encoded copy so the size always resolves
+            int width = Math.min(original.getWidth(), size.getMaxWidth());
+            BufferedImage resized = resize(original, width, jpeg);
+            write(resized, fileStorageService.getFilePath(derivativeName(fileName, size)), jpeg);
+        }
+        log.info("Created derivatives for {} in {} ms", fileName, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new RuntimeException("Image too large to resize");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale to the target width, halving repeatedly first so bilinear filtering
+     * keeps its quality on large reductions
+     */
+    private static BufferedImage resize(BufferedImage source, int targetWidth, boolean opaque) {
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    /**
+     * Write to a temporary file and move it into place, so readers never see half an image
+     */
+    private static void write(BufferedImage image, Path target, boolean jpeg) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".derivative", ".tmp");
+        try {
+            if (jpeg) {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            } else {
+                ImageIO.write(image, "png", temp.toFile());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean isJpeg(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg");
+    }
+}
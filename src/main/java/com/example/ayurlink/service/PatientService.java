@@ -1,10 +1,13 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.config.CacheConfig;
 import com.example.ayurlink.model.Patient;
 import com.example.ayurlink.model.Role;
 import com.example.ayurlink.repository.PatientRepository;
 import com.example.ayurlink.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +23,7 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Patient registerPatient(Patient patient) {
         // Validate NIC uniqueness
@@ -43,11 +47,13 @@ public class PatientService {
         return patientRepository.findByUsername(username);
     }
 
+    @Transactional(readOnly = true)
     public List<Patient> getAllPatients() {
         return patientRepository.findAll();
     }
 
 
+    @CacheEvict(cacheNames = CacheConfig.LOGIN_ACCOUNTS, key = "#username")
     public void updatePatient(String username, Patient updated) {
         Optional<Patient> optionalPatient = patientRepository.findByUsername(username);
         if (optionalPatient.isPresent()) {
@@ -61,9 +67,11 @@ public class PatientService {
             patient.setMedicalHistory(updated.getMedicalHistory());
             patient.setUsername(updated.getUsername());
             patientRepository.save(patient);
+            eventPublisher.publishEvent(new AccountChangedEvent(patient.getId()));
         }
     }
 
+    @CacheEvict(cacheNames = CacheConfig.LOGIN_ACCOUNTS, key = "#username")
     public boolean changePassword(String username, String currentPassword, String newPassword) {
         Optional<Patient> optionalPatient = patientRepository.findByUsername(username);
         if (optionalPatient.isPresent()) {
@@ -86,6 +94,7 @@ public class PatientService {
 
 
 
+    @CacheEvict(cacheNames = CacheConfig.LOGIN_ACCOUNTS, allEntries = true)
     public void deletePatient(Long id) {
         patientRepository.deleteById(id);
     }
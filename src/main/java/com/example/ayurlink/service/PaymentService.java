@@ -1,5 +1,11 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.dto.AppointmentStatusCount;
+import com.example.ayurlink.dto.KeysetPage;
+import com.example.ayurlink.dto.PatientPaymentTotals;
+import com.example.ayurlink.dto.PaymentCsvRow;
+import com.example.ayurlink.dto.PaymentSnapshot;
+import com.example.ayurlink.dto.PaymentTotals;
 import com.example.ayurlink.model.*;
 import com.example.ayurlink.repository.AppointmentRepository;
 import com.example.ayurlink.repository.PaymentRepository;
@@ -9,11 +15,19 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -25,6 +39,8 @@ public class PaymentService {
     private final AppointmentRepository appointmentRepository;
     private final FileStorageService fileStorageService;
     private final DoctorEarningService doctorEarningService;
+    private final SlotBitmapService slotBitmapService;
+    private final RevenueRollupService revenueRollupService;
 
     private static final Double DEFAULT_CLINIC_CHARGES = 500.0;
 
@@ -55,11 +71,17 @@ public class PaymentService {
 
         // Save payment to database
         Payment savedPayment = paymentRepository.save(payment);
+        revenueRollupService.apply(null, PaymentSnapshot.of(savedPayment));
         log.info("Cash payment saved with ID: {}, Status: SUCCESS", savedPayment.getId());
         return paymentRepository.save(payment);
     }
 
-    public Payment createReceiptUploadPayment(Long appointmentId, MultipartFile receiptFile, String notes) {
+    /**
+     * Save a receipt upload payment as UPLOADING, before its file is stored. The
+     * file is only checked here; ReceiptIngestionService stores it afterwards and
+     * calls completeReceiptUpload or failReceiptUpload.
+     */
+    public Payment createStagedReceiptPayment(Long appointmentId, MultipartFile receiptFile, String notes) {
         log.info("Creating receipt upload payment for appointment ID: {}", appointmentId);
         Appointment appointment = validateAppointment(appointmentId);
 
@@ -70,69 +92,125 @@ public class PaymentService {
         if (!isValidReceiptFile(receiptFile.getContentType())) {
             throw new RuntimeException("Invalid file type. Only JPG, PNG, and PDF allowed.");
         }
-//store the file
-        String fileName = fileStorageService.storeFile(receiptFile, "receipt_" + appointmentId);
-        log.info("Receipt file stored successfully: {}", fileName);
 
-//build payment object
         Payment payment = buildPayment(appointment, PaymentMethod.RECEIPT_UPLOAD, notes);
-
-
-        payment.setReceiptFileName(fileName);
-        payment.setReceiptFilePath("uploads/receipts/" + fileName);
-        payment.setReceiptUploadDate(LocalDateTime.now());
-        payment.setStatus(PaymentStatus.PENDING_VERIFICATION);
+        payment.setStatus(PaymentStatus.UPLOADING);
         payment.setReceiptVerified(false);
         payment.setPaymentDate(LocalDateTime.now());
 
-        log.info("Payment object created with receipt details");
-
         // Set appointment to PENDING until admin verifies
         appointment.setStatus(AppointmentStatus.PENDING);
         appointmentRepository.save(appointment);
-        log.info("Appointment status set to PENDING");
 
-        // Save payment to database
         Payment savedPayment = paymentRepository.save(payment);
+        revenueRollupService.apply(null, PaymentSnapshot.of(savedPayment));
+        log.info("Payment {} saved, receipt {} awaiting storage", savedPayment.getId(), savedPayment.getReceiptNumber());
+        return savedPayment;
+    }
 
-        log.info("=== PAYMENT SAVED TO DATABASE ===");
-        log.info("Payment ID: {}", savedPayment.getId());
-        log.info("Receipt Number: {}", savedPayment.getReceiptNumber());
-        log.info("Transaction ID: {}", savedPayment.getTransactionId());
-        log.info("Status: {}", savedPayment.getStatus());
-        log.info("Receipt File: {}", savedPayment.getReceiptFileName());
-        log.info("Receipt Path: {}", savedPayment.getReceiptFilePath());
-        log.info("Upload Date: {}", savedPayment.getReceiptUploadDate());
-        log.info("================================");
+    /**
+     * Attach the stored receipt to an UPLOADING payment and hand it to the admins
+     * for verification
+     */
+    public Payment completeReceiptUpload(Long paymentId, FileStorageService.StagedFile staged, String fileName) {
+        Payment payment = paymentRepository.findForUpdate(paymentId)
+                .orElseThrow(() -> new RuntimeException("Payment not found"));
+        if (payment.getStatus() != PaymentStatus.UPLOADING) {
+            throw new RuntimeException("Payment is not awaiting a receipt. Current status: " + payment.getStatus());
+        }
+        PaymentSnapshot before = PaymentSnapshot.of(payment);
 
+        fileStorageService.storeStaged(staged, fileName);
+        payment.setReceiptFileName(fileName);
+        payment.setReceiptFilePath(fileStorageService.getFilePath(fileName).toString());
+        payment.setReceiptUploadDate(LocalDateTime.now());
+        payment.setStatus(PaymentStatus.PENDING_VERIFICATION);
 
-        return paymentRepository.save(payment);
+        Payment savedPayment = paymentRepository.save(payment);
+        revenueRollupService.apply(before, PaymentSnapshot.of(savedPayment));
+        log.info("Receipt {} stored for payment {}, awaiting verification", fileName, paymentId);
+        return savedPayment;
     }
 
+    /**
+     * Mark an UPLOADING payment FAILED when its receipt could not be stored, so the
+     * patient can pay again. Does nothing if the payment has moved on; returns
+     * whether it was failed.
+     */
+    public boolean failReceiptUpload(Long paymentId, String reason) {
+        return paymentRepository.findForUpdate(paymentId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.UPLOADING)
+                .map(payment -> {
+                    PaymentSnapshot before = PaymentSnapshot.of(payment);
+                    payment.setStatus(PaymentStatus.FAILED);
+                    String currentNotes = payment.getPaymentNotes() != null ? payment.getPaymentNotes() : "";
+                    payment.setPaymentNotes(currentNotes + " | FAILED on " + LocalDateTime.now() + ": " + reason);
+
+                    Payment savedPayment = paymentRepository.save(payment);
+                    revenueRollupService.apply(before, PaymentSnapshot.of(savedPayment));
+                    log.warn("Receipt upload failed for payment {}: {}", paymentId, reason);
+                    return true;
+                })
+                .orElse(false);
+    }
 
+    /**
+     * Fail receipt uploads still UPLOADING since before the cutoff - their staged
+     * file was lost, e.g. in a restart. An upload that completes while the sweep
+     * runs keeps its receipt: the status is checked again under the row lock.
+     */
+    public int failStaleReceiptUploads(LocalDateTime cutoff) {
+        List<Long> staleIds = paymentRepository.findIdsByStatusAndPaymentDateBefore(PaymentStatus.UPLOADING, cutoff);
+        int failed = 0;
+        for (Long paymentId : staleIds) {
+            if (failReceiptUpload(paymentId, "Receipt upload did not complete")) {
+                failed++;
+            }
+        }
+        return failed;
+    }
 
     // ==================== READ OPERATIONS ====================
 
     public Optional<Payment> getPaymentById(Long id) {
-        return paymentRepository.findById(id);
+        return paymentRepository.findDetailedById(id);
     }
 
     public Optional<Payment> getPaymentByAppointmentId(Long appointmentId) {
         return paymentRepository.findByAppointmentId(appointmentId);
     }
 
+    @Transactional(readOnly = true)
     public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+        return paymentRepository.findAllDetailed();
+    }
+
+    /**
+     * One page of the admin payment listing; every filter is optional
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Payment> getPaymentsPage(PaymentStatus status, Long doctorId,
+                                               LocalDate fromDate, LocalDate toDate,
+                                               KeysetPage.Order order, Long after, Long before, int size) {
+        LocalDateTime from = fromDate != null ? fromDate.atStartOfDay() : null;
+        LocalDateTime to = toDate != null ? toDate.atTime(LocalTime.MAX) : null;
+        return KeysetPage.load(order, after, before, size,
+                (cursor, limit) -> paymentRepository.findPageDescending(cursor, status, doctorId, from, to, limit),
+                (cursor, limit) -> paymentRepository.findPageAscending(cursor, status, doctorId, from, to, limit),
+                Payment::getId);
     }
 
+    @Transactional(readOnly = true)
     public List<Payment> getPatientPayments(Long patientId) {
         return paymentRepository.findByAppointment_Patient_Id(patientId);
     }
 
+    @Transactional(readOnly = true)
     public List<Payment> getPendingVerificationPayments() {
         return paymentRepository.findByStatusOrderByPaymentDateDesc(PaymentStatus.PENDING_VERIFICATION);
     }
 
+    @Transactional(readOnly = true)
     public List<Payment> getPaymentsByDateRange(LocalDate startDate, LocalDate endDate) {
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(LocalTime.MAX);
@@ -148,7 +226,7 @@ public class PaymentService {
         log.info("Approved: {}", approved);
         log.info("Verified by: {}", verifiedBy);
 
-        Payment payment = paymentRepository.findById(paymentId)
+        Payment payment = paymentRepository.findForUpdate(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
         if (payment.getPaymentMethod() != PaymentMethod.RECEIPT_UPLOAD) {
@@ -159,6 +237,7 @@ public class PaymentService {
         }
         Appointment appointment = payment.getAppointment();
         log.info("Associated appointment: {}", appointment.getTicketNumber());
+        PaymentSnapshot before = PaymentSnapshot.of(payment);
 
         if (approved) {
             // APPROVE: Payment successful, appointment confirmed
@@ -202,6 +281,7 @@ public class PaymentService {
 
         // Save payment
         Payment savedPayment = paymentRepository.save(payment);
+        revenueRollupService.apply(before, PaymentSnapshot.of(savedPayment));
 
         log.info("=== VERIFICATION SAVED TO DATABASE ===");
         log.info("Payment ID: {}", savedPayment.getId());
@@ -216,12 +296,13 @@ public class PaymentService {
     }
 
     public Payment refundPayment(Long paymentId, String refundReason) {
-        Payment payment = paymentRepository.findById(paymentId)
+        Payment payment = paymentRepository.findForUpdate(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
         if (payment.getStatus() != PaymentStatus.SUCCESS) {
             throw new RuntimeException("Only successful payments can be refunded");
         }
+        PaymentSnapshot before = PaymentSnapshot.of(payment);
 
         payment.setStatus(PaymentStatus.REFUNDED);
         payment.setRefundAmount(payment.getTotalAmount());
@@ -231,6 +312,8 @@ public class PaymentService {
         Appointment appointment = payment.getAppointment();
         appointment.setStatus(AppointmentStatus.CANCELLED);
         appointmentRepository.save(appointment);
+        slotBitmapService.release(appointment.getDoctor().getId(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime());
         // Cancel earning records when payment is refunded
         try {
             doctorEarningService.handleRefund(payment);
@@ -239,13 +322,15 @@ public class PaymentService {
             log.error("Error cancelling earning records: {}", e.getMessage());
         }
 
-        return paymentRepository.save(payment);
+        Payment savedPayment = paymentRepository.save(payment);
+        revenueRollupService.apply(before, PaymentSnapshot.of(savedPayment));
+        return savedPayment;
     }
 
     // ==================== DELETE OPERATIONS ====================
 
     public void deletePayment(Long paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
+        Payment payment = paymentRepository.findForUpdate(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
         if (payment.getStatus() == PaymentStatus.SUCCESS) {
@@ -257,6 +342,7 @@ public class PaymentService {
             fileStorageService.deleteFile(payment.getReceiptFileName());
         }
 
+        revenueRollupService.apply(PaymentSnapshot.of(payment), null);
         paymentRepository.delete(payment);
         log.info("Payment deleted: {}", paymentId);
     }
@@ -264,7 +350,7 @@ public class PaymentService {
     // ==================== CALCULATION & BREAKDOWN ====================
 
     public Map<String, Double> calculatePaymentBreakdown(Long appointmentId) {
-        Appointment appointment = appointmentRepository.findById(appointmentId)
+        Appointment appointment = appointmentRepository.findDetailedById(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
 
         Double doctorFee = appointment.getDoctor().getConsultationFee();
@@ -280,7 +366,7 @@ public class PaymentService {
     }
 
     public Map<String, Object> getPaymentReceipt(Long paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
+        Payment payment = paymentRepository.findDetailedById(paymentId)
                 .orElseThrow(() -> new RuntimeException("Payment not found"));
 
         Map<String, Object> receipt = new HashMap<>();
@@ -298,167 +384,135 @@ public class PaymentService {
 
     // ==================== REPORTS & STATISTICS ====================
 
+    /**
+     * Daily totals from the revenue rollups plus the day's payments for listing
+     */
+    @Transactional(readOnly = true)
     public Map<String, Object> getDailySummary(LocalDate date) {
         LocalDateTime start = date.atStartOfDay();
         LocalDateTime end = date.atTime(LocalTime.MAX);
-        List<Payment> payments = paymentRepository.findByPaymentDateBetween(start, end);
 
-        Double totalRevenue = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTotalAmount)
-                .sum();
+        Map<String, Object> summary = getDailyTotals(date);
+        summary.put("payments", paymentRepository.findByPaymentDateBetween(start, end));
+        return summary;
+    }
 
+    /**
+     * Daily totals from the revenue rollups, without loading any payments
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDailyTotals(LocalDate date) {
         Map<String, Object> summary = new HashMap<>();
         summary.put("date", date);
-        summary.put("totalPayments", payments.size());
-        summary.put("totalRevenue", totalRevenue);
-        summary.put("payments", payments);
+        putRollupTotals(summary, revenueRollupService.getSummary(RollupPeriod.DAY, date));
         return summary;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getMonthlySummary(int year, int month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.plusMonths(1).minusDays(1);
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(LocalTime.MAX);
-
-        List<Payment> payments = paymentRepository.findByPaymentDateBetween(start, end);
-
-        Double totalRevenue = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTotalAmount)
-                .sum();
-
-        Double totalRefunds = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
-                .mapToDouble(p -> p.getRefundAmount() != null ? p.getRefundAmount() : 0.0)
-                .sum();
 
         Map<String, Object> summary = new HashMap<>();
         summary.put("year", year);
         summary.put("month", month);
-        summary.put("totalPayments", payments.size());
-        summary.put("totalRevenue", totalRevenue);
-        summary.put("totalRefunds", totalRefunds);
-        summary.put("netRevenue", totalRevenue - totalRefunds);
-        summary.put("payments", payments);
+        putRollupTotals(summary, revenueRollupService.getSummary(RollupPeriod.MONTH, startDate));
+
+        long totalPayments = (Long) summary.get("totalPayments");
+        Double totalRevenue = (Double) summary.get("totalRevenue");
+        summary.put("averagePayment", totalPayments > 0 ? totalRevenue / totalPayments : 0.0);
         return summary;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getPaymentStatistics() {
-        List<Payment> allPayments = paymentRepository.findAll();
+        List<PaymentTotals> totals = paymentRepository.getTotalsByStatusAndMethod();
 
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalPayments", allPayments.size());
-        stats.put("successfulPayments", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS).count());
-        stats.put("pendingVerification", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.PENDING_VERIFICATION).count());
-        stats.put("pendingCOD", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.PENDING).count());
-        stats.put("refunded", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED).count());
-
-        Double totalRevenue = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTotalAmount).sum();
-
-        Double totalRefunds = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
-                .mapToDouble(p -> p.getRefundAmount() != null ? p.getRefundAmount() : 0.0).sum();
+        stats.put("totalPayments", countPayments(totals, t -> true));
+        stats.put("successfulPayments", countPayments(totals, t -> t.status() == PaymentStatus.SUCCESS));
+        stats.put("pendingVerification", countPayments(totals, t -> t.status() == PaymentStatus.PENDING_VERIFICATION));
+        stats.put("pendingCOD", countPayments(totals, t -> t.status() == PaymentStatus.PENDING));
+        stats.put("refunded", countPayments(totals, t -> t.status() == PaymentStatus.REFUNDED));
+
+        Double totalRevenue = sumTotalAmount(totals, t -> t.status() == PaymentStatus.SUCCESS);
+        Double totalRefunds = sumRefundAmount(totals);
 
         stats.put("totalRevenue", totalRevenue);
         stats.put("totalRefunds", totalRefunds);
         stats.put("netRevenue", totalRevenue - totalRefunds);
 
-        stats.put("cashPayments", allPayments.stream()
-                .filter(p -> p.getPaymentMethod() == PaymentMethod.CASH).count());
-        stats.put("receiptPayments", allPayments.stream()
-                .filter(p -> p.getPaymentMethod() == PaymentMethod.RECEIPT_UPLOAD).count());
+        stats.put("cashPayments", countPayments(totals, t -> t.method() == PaymentMethod.CASH));
+        stats.put("receiptPayments", countPayments(totals, t -> t.method() == PaymentMethod.RECEIPT_UPLOAD));
 
 
         return stats;
     }
 
-    public String exportPaymentsToCSV(LocalDate startDate, LocalDate endDate) {
-        List<Payment> payments = getPaymentsByDateRange(startDate, endDate);
-        StringBuilder csv = new StringBuilder();
-        csv.append("Receipt,Transaction,Patient,NIC,Doctor,Treatment,Amount,Method,Status,Date\n");
-
-        for (Payment p : payments) {
-            csv.append(p.getReceiptNumber()).append(",")
-                    .append(p.getTransactionId()).append(",")
-                    .append(p.getAppointment().getPatient().getFullName()).append(",")
-                    .append(p.getAppointment().getPatient().getNic()).append(",")
-                    .append(p.getAppointment().getDoctor().getFullName()).append(",")
-                    .append(p.getAppointment().getTreatment().getName()).append(",")
-                    .append(p.getTotalAmount()).append(",")
-                    .append(p.getPaymentMethod()).append(",")
-                    .append(p.getStatus()).append(",")
-                    .append(p.getPaymentDate()).append("\n");
+    /**
+     * Write the payments in the date range as CSV, row by row, without holding the
+     * export in memory. The caller owns (and closes) the output stream.
+     */
+    @Transactional(readOnly = true)
+    public void writePaymentsCsv(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.atTime(LocalTime.MAX);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        writer.write("Receipt,Transaction,Patient,NIC,Doctor,Treatment,Amount,Method,Status,Date\n");
+
+        try (Stream<PaymentCsvRow> rows = paymentRepository.streamCsvRows(start, end)) {
+            Iterator<PaymentCsvRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PaymentCsvRow row = iterator.next();
+                writeCsvLine(writer,
+                        row.receiptNumber(),
+                        row.transactionId(),
+                        row.patientName(),
+                        row.patientNic(),
+                        row.doctorName(),
+                        row.treatmentName(),
+                        row.totalAmount(),
+                        row.paymentMethod(),
+                        row.status(),
+                        row.paymentDate());
+            }
         }
-        return csv.toString();
+        writer.flush();
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> generateDetailedReport(LocalDate startDate, LocalDate endDate) {
-        List<Payment> payments = getPaymentsByDateRange(startDate, endDate);
+        RevenueRollupService.Summary rollup = revenueRollupService.getSummary(startDate, endDate);
+        RevenueRollup total = rollup.getTotal();
 
         Map<String, Object> report = new HashMap<>();
         report.put("startDate", startDate);
         report.put("endDate", endDate);
-        report.put("totalPayments", payments.size());
+        report.put("totalPayments", total.getPaymentCount());
 
         // Revenue breakdown
-        Double totalRevenue = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTotalAmount).sum();
-
-        Double doctorFees = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getDoctorFee).sum();
-
-        Double treatmentFees = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTreatmentFee).sum();
-
-        Double clinicCharges = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getClinicCharges).sum();
-
-        report.put("totalRevenue", totalRevenue);
-        report.put("doctorFees", doctorFees);
-        report.put("treatmentFees", treatmentFees);
-        report.put("clinicCharges", clinicCharges);
+        report.put("totalRevenue", total.getRevenue());
+        report.put("doctorFees", total.getDoctorFees());
+        report.put("treatmentFees", total.getTreatmentFees());
+        report.put("clinicCharges", total.getClinicCharges());
 
         // Payment method breakdown
-        Map<PaymentMethod, Long> methodBreakdown = payments.stream()
-                .collect(Collectors.groupingBy(Payment::getPaymentMethod, Collectors.counting()));
+        Map<PaymentMethod, Long> methodBreakdown = new EnumMap<>(PaymentMethod.class);
+        rollup.get(RollupDimension.METHOD).forEach((method, row) ->
+                methodBreakdown.put(PaymentMethod.valueOf(method), row.getPaymentCount()));
         report.put("methodBreakdown", methodBreakdown);
 
         // Status breakdown
-        Map<PaymentStatus, Long> statusBreakdown = payments.stream()
-                .collect(Collectors.groupingBy(Payment::getStatus, Collectors.counting()));
+        Map<PaymentStatus, Long> statusBreakdown = new EnumMap<>(PaymentStatus.class);
+        rollup.get(RollupDimension.STATUS).forEach((status, row) ->
+                statusBreakdown.put(PaymentStatus.valueOf(status), row.getPaymentCount()));
         report.put("statusBreakdown", statusBreakdown);
 
-        // Top treatments
-        Map<String, Long> treatmentStats = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .collect(Collectors.groupingBy(
-                        p -> p.getAppointment().getTreatment().getName(),
-                        Collectors.counting()
-                ));
-        report.put("topTreatments", treatmentStats);
+        // Top treatments and doctors by successful payments
+        report.put("topTreatments", successCountsByLabel(rollup.get(RollupDimension.TREATMENT)));
+        report.put("topDoctors", successCountsByLabel(rollup.get(RollupDimension.DOCTOR)));
 
-        // Top doctors
-        Map<String, Long> doctorStats = payments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .collect(Collectors.groupingBy(
-                        p -> p.getAppointment().getDoctor().getFullName(),
-                        Collectors.counting()
-                ));
-        report.put("topDoctors", doctorStats);
-
-        report.put("payments", payments);
+        report.put("payments", getPaymentsByDateRange(startDate, endDate));
         return report;
     }
 
@@ -512,30 +566,33 @@ public class PaymentService {
 
 // ==================== ADDITIONAL REPORT METHODS ====================
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getPaymentMethodAnalysis() {
-        List<Payment> allPayments = paymentRepository.findAll();
+        List<PaymentTotals> totals = paymentRepository.getTotalsByStatusAndMethod();
 
         Map<String, Object> analysis = new HashMap<>();
 
         // Count by payment method
-        Map<PaymentMethod, Long> methodCounts = allPayments.stream()
-                .collect(Collectors.groupingBy(Payment::getPaymentMethod, Collectors.counting()));
+        Map<PaymentMethod, Long> methodCounts = totals.stream()
+                .collect(Collectors.groupingBy(PaymentTotals::method,
+                        Collectors.summingLong(PaymentTotals::count)));
 
         // Revenue by payment method
-        Map<PaymentMethod, Double> methodRevenue = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
+        Map<PaymentMethod, Double> methodRevenue = totals.stream()
+                .filter(t -> t.status() == PaymentStatus.SUCCESS)
                 .collect(Collectors.groupingBy(
-                        Payment::getPaymentMethod,
-                        Collectors.summingDouble(Payment::getTotalAmount)
+                        PaymentTotals::method,
+                        Collectors.summingDouble(PaymentTotals::totalAmount)
                 ));
 
         analysis.put("methodCounts", methodCounts);
         analysis.put("methodRevenue", methodRevenue);
-        analysis.put("totalPayments", allPayments.size());
+        analysis.put("totalPayments", countPayments(totals, t -> true));
 
         return analysis;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getDoctorPerformanceReport() {
         List<Payment> successfulPayments = paymentRepository.findByStatus(PaymentStatus.SUCCESS);
 
@@ -569,6 +626,7 @@ public class PaymentService {
         return report;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getTreatmentAnalysis() {
         List<Payment> successfulPayments = paymentRepository.findByStatus(PaymentStatus.SUCCESS);
 
@@ -604,6 +662,7 @@ public class PaymentService {
         return analysis;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getRefundReport() {
         List<Payment> refundedPayments = paymentRepository.findByStatus(PaymentStatus.REFUNDED);
 
@@ -629,85 +688,122 @@ public class PaymentService {
         return report;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getPatientAnalytics() {
-        List<Payment> allPayments = paymentRepository.findAll();
-
         Map<String, Object> analytics = new HashMap<>();
 
-        // Unique patients
-        Set<Long> uniquePatients = allPayments.stream()
-                .map(p -> p.getAppointment().getPatient().getId())
-                .collect(Collectors.toSet());
-
-        // Patient payment frequency
-        Map<String, Long> patientFrequency = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .collect(Collectors.groupingBy(
-                        p -> p.getAppointment().getPatient().getFullName(),
-                        Collectors.counting()
-                ));
-
-        // Patient total spending
-        Map<String, Double> patientSpending = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .collect(Collectors.groupingBy(
-                        p -> p.getAppointment().getPatient().getFullName(),
-                        Collectors.summingDouble(Payment::getTotalAmount)
-                ));
+        // Patient payment frequency and total spending
+        Map<String, Long> patientFrequency = new HashMap<>();
+        Map<String, Double> patientSpending = new HashMap<>();
+        for (PatientPaymentTotals totals : paymentRepository.getPatientTotalsByStatus(PaymentStatus.SUCCESS)) {
+            patientFrequency.put(totals.patientName(), totals.count());
+            patientSpending.put(totals.patientName(), totals.totalAmount());
+        }
 
-        analytics.put("totalPatients", uniquePatients.size());
+        analytics.put("totalPatients", paymentRepository.countDistinctPatients());
         analytics.put("patientFrequency", patientFrequency);
         analytics.put("patientSpending", patientSpending);
 
         return analytics;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getSystemOverview() {
         Map<String, Object> overview = new HashMap<>();
 
-        // Get all payments
-        List<Payment> allPayments = paymentRepository.findAll();
-        List<Appointment> allAppointments = appointmentRepository.findAll();
+        List<PaymentTotals> totals = paymentRepository.getTotalsByStatusAndMethod();
+        Map<AppointmentStatus, Long> appointmentCounts = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatusCount statusCount : appointmentRepository.countGroupedByStatus()) {
+            appointmentCounts.put(statusCount.status(), statusCount.count());
+        }
 
         // Payment statistics
-        overview.put("totalPayments", allPayments.size());
-        overview.put("successfulPayments", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS).count());
-        overview.put("pendingPayments", allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.PENDING_VERIFICATION).count());
+        overview.put("totalPayments", countPayments(totals, t -> true));
+        overview.put("successfulPayments", countPayments(totals, t -> t.status() == PaymentStatus.SUCCESS));
+        overview.put("pendingPayments", countPayments(totals, t -> t.status() == PaymentStatus.PENDING_VERIFICATION));
 
         // Revenue statistics
-        Double totalRevenue = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
-                .mapToDouble(Payment::getTotalAmount).sum();
-
-        Double totalRefunds = allPayments.stream()
-                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
-                .mapToDouble(p -> p.getRefundAmount() != null ? p.getRefundAmount() : 0.0).sum();
+        Double totalRevenue = sumTotalAmount(totals, t -> t.status() == PaymentStatus.SUCCESS);
+        Double totalRefunds = sumRefundAmount(totals);
 
         overview.put("totalRevenue", totalRevenue);
         overview.put("totalRefunds", totalRefunds);
         overview.put("netRevenue", totalRevenue - totalRefunds);
 
         // Appointment statistics
-        overview.put("totalAppointments", allAppointments.size());
-        overview.put("confirmedAppointments", allAppointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.CONFIRMED).count());
-        overview.put("cancelledAppointments", allAppointments.stream()
-                .filter(a -> a.getStatus() == AppointmentStatus.CANCELLED).count());
+        overview.put("totalAppointments", appointmentCounts.values().stream().mapToLong(Long::longValue).sum());
+        overview.put("confirmedAppointments", appointmentCounts.getOrDefault(AppointmentStatus.CONFIRMED, 0L));
+        overview.put("cancelledAppointments", appointmentCounts.getOrDefault(AppointmentStatus.CANCELLED, 0L));
 
         // Unique counts
-        Set<Long> uniquePatients = allAppointments.stream()
-                .map(a -> a.getPatient().getId())
-                .collect(Collectors.toSet());
+        overview.put("totalPatients", appointmentRepository.countDistinctPatients());
+        overview.put("totalDoctors", appointmentRepository.countDistinctDoctors());
 
-        Set<Long> uniqueDoctors = allAppointments.stream()
-                .map(a -> a.getDoctor().getId())
-                .collect(Collectors.toSet());
+        return overview;
+    }
 
-        overview.put("totalPatients", uniquePatients.size());
-        overview.put("totalDoctors", uniqueDoctors.size());
+    // ==================== CSV HELPERS ====================
 
-        return overview;
+    private void writeCsvLine(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Quote a value if it contains a separator, quote or line break (RFC 4180)
+     */
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    // ==================== AGGREGATE HELPERS ====================
+
+    private void putRollupTotals(Map<String, Object> summary, RevenueRollupService.Summary rollup) {
+        RevenueRollup total = rollup.getTotal();
+
+        summary.put("totalPayments", total.getPaymentCount());
+        summary.put("completedPayments", total.getSuccessCount());
+        summary.put("refunded", total.getRefundCount());
+        summary.put("totalRevenue", total.getRevenue());
+        summary.put("totalRefunds", total.getRefundAmount());
+        summary.put("netRevenue", total.getNetRevenue());
+        summary.put("cashPayments", rollup.getPaymentCount(RollupDimension.METHOD, PaymentMethod.CASH.name()));
+        summary.put("receiptPayments", rollup.getPaymentCount(RollupDimension.METHOD, PaymentMethod.RECEIPT_UPLOAD.name()));
+    }
+
+    private Map<String, Long> successCountsByLabel(Map<String, RevenueRollup> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (RevenueRollup row : rows.values()) {
+            if (row.getSuccessCount() > 0) {
+                counts.merge(row.getLabel(), row.getSuccessCount(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private long countPayments(List<PaymentTotals> totals, Predicate<PaymentTotals> filter) {
+        return totals.stream().filter(filter).mapToLong(PaymentTotals::count).sum();
+    }
+
+    private Double sumTotalAmount(List<PaymentTotals> totals, Predicate<PaymentTotals> filter) {
+        return totals.stream().filter(filter).mapToDouble(PaymentTotals::totalAmount).sum();
+    }
+
+    private Double sumRefundAmount(List<PaymentTotals> totals) {
+        return totals.stream()
+                .filter(t -> t.status() == PaymentStatus.REFUNDED)
+                .mapToDouble(PaymentTotals::refundAmount).sum();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.example.ayurlink.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rendered HTML of the public pages as seen by anonymous visitors, keyed by path.
+ * Their only dynamic content is the treatment catalogue, so treatment changes
+ * clear the whole cache; entries also expire after a TTL as a safety net.
+ */
+@Slf4j
+@Service
+public class PublicPageCache {
+
+    public static final Set<String> CACHEABLE_PATHS = Set.of("/", "/home", "/treatments", "/about", "/contact");
+
+    @Value("${ayurlink.page-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ayurlink.page-cache.ttl:10m}")
+    private Duration ttl;
+
+    private final Map<String, Page> pages = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a render that started earlier is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Page get(String path) {
+        Page page = pages.get(path);
+        if (page != null && page.isExpired(ttl)) {
+            pages.remove(path, page);
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Current generation, to pass back to {@link #put} once the page has been rendered
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Store a rendered page unless the cache was invalidated while it was rendering
+     */
+    public Page put(String path, String contentType, byte[] body, long renderedGeneration) {
+        Page page = new Page(contentType, body, etag(body), System.nanoTime());
+        if (generation.get() == renderedGeneration) {
+            pages.put(path, page);
+            // Re-check: an invalidation may have cleared the map just before the put
+            if (generation.get() != renderedGeneration) {
+                pages.remove(path, page);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Drop every cached page once the current transaction commits
+     */
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            generation.incrementAndGet();
+            pages.clear();
+            log.debug("Public page cache cleared");
+        });
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Page(String contentType, byte[] body, String etag, long storedAtNanos) {
+        boolean isExpired(Duration ttl) {
+            return System.nanoTime() - storedAtNanos > ttl.toNanos();
+        }
+    }
+}
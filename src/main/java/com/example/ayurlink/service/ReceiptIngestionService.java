@@ -0,0 +1,118 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.config.AsyncConfig;
+import com.example.ayurlink.model.Payment;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes receipt uploads without holding a database connection while the file is
+ * written. The payment is saved as UPLOADING in a short transaction, the upload is
+ * moved out of the request into the staging directory, and the receipt executor
+ * hashes, syncs and stores it before a second short transaction marks the payment
+ * PENDING_VERIFICATION (or FAILED, so the patient can pay again).
+ *
+ * Metrics: ayurlink.receipts.queue / ayurlink.receipts.active (executor load) and
+ * ayurlink.receipts.ingest (time from upload to stored, tagged by outcome).
+ */
+@Slf4j
+@Service
+public class ReceiptIngestionService {
+
+    // UPLOADING payments older than this lost their staged file (e.g. in a restart)
+    private static final long STALE_MINUTES = 30;
+
+    private final PaymentService paymentService;
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolTaskExecutor receiptExecutor;
+    private final Timer storedTimer;
+    private final Timer failedTimer;
+
+    @Autowired
+    public ReceiptIngestionService(PaymentService paymentService,
+                                   FileStorageService fileStorageService,
+                                   @Qualifier(AsyncConfig.RECEIPT_EXECUTOR) ThreadPoolTaskExecutor receiptExecutor,
+                                   MeterRegistry meterRegistry) {
+        this.paymentService = paymentService;
+        this.fileStorageService = fileStorageService;
+        this.receiptExecutor = receiptExecutor;
+
+        Gauge.builder("ayurlink.receipts.queue", receiptExecutor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Receipt uploads waiting to be stored")
+                .register(meterRegistry);
+        Gauge.builder("ayurlink.receipts.active", receiptExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Receipt uploads being stored")
+                .register(meterRegistry);
+        this.storedTimer = ingestTimer(meterRegistry, "stored");
+        this.failedTimer = ingestTimer(meterRegistry, "failed");
+    }
+
+    /**
+     * Save the payment and queue its receipt for storage. Returns the UPLOADING
+     * payment; when the executor is saturated the receipt is stored before returning.
+     */
+    public Payment submit(Long appointmentId, MultipartFile receiptFile, String notes) {
+        Payment payment = paymentService.createStagedReceiptPayment(appointmentId, receiptFile, notes);
+        Long paymentId = payment.getId();
+
+        FileStorageService.StagedFile staged;
+        try {
+            staged = fileStorageService.stage(receiptFile);
+        } catch (RuntimeException e) {
+            paymentService.failReceiptUpload(paymentId, e.getMessage());
+            throw e;
+        }
+
+        long acceptedAt = System.nanoTime();
+        receiptExecutor.execute(() -> ingest(paymentId, staged, acceptedAt));
+        return payment;
+    }
+
+    @Scheduled(fixedDelay = 300_000, initialDelay = 60_000)
+    public void failStaleUploads() {
+        int failed = paymentService.failStaleReceiptUploads(LocalDateTime.now().minusMinutes(STALE_MINUTES));
+        if (failed > 0) {
+            log.warn("Marked {} interrupted receipt uploads as failed", failed);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private void ingest(Long paymentId, FileStorageService.StagedFile staged, long acceptedAt) {
+        Timer timer = failedTimer;
+        try {
+            String fileName = fileStorageService.prepare(staged);
+            paymentService.completeReceiptUpload(paymentId, staged, fileName);
+            timer = storedTimer;
+        } catch (RuntimeException e) {
+            log.error("Could not store receipt for payment {}", paymentId, e);
+            try {
+                paymentService.failReceiptUpload(paymentId, "Receipt could not be stored");
+            } catch (RuntimeException ex) {
+                log.error("Could not mark payment {} as failed: {}", paymentId, ex.getMessage());
+            }
+        } finally {
+            fileStorageService.discard(staged);
+            timer.record(System.nanoTime() - acceptedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer ingestTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("ayurlink.receipts.ingest")
+                .description("Time from a receipt upload to its file being stored")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.dto.PaymentSnapshot;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.PaymentRepository;
+import com.example.ayurlink.repository.RevenueRollupRepository;
+import com.example.ayurlink.repository.RevenueRollupStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains per-day and per-month revenue rollups (totals, by payment method,
+ * by status, by doctor and by treatment). Payment state changes apply the
+ * difference between the old and new state of the payment, so a report only
+ * reads the handful of rows for its period. Updates and rebuilds take turns on
+ * the revenue_rollup_state row (see RevenueRollupState).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class RevenueRollupService {
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+    private static final String TOTAL_KEY = "ALL";
+
+    // Lock buckets in a fixed order so concurrent payment updates cannot deadlock
+    private static final Comparator<RevenueRollup> BUCKET_ORDER = Comparator
+            .comparing(RevenueRollup::getPeriodType)
+            .thenComparing(RevenueRollup::getPeriodStart)
+            .thenComparing(RevenueRollup::getDimension)
+            .thenComparing(RevenueRollup::getDimKey);
+
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final RevenueRollupStateRepository revenueRollupStateRepository;
+    private final PaymentRepository paymentRepository;
+
+    /**
+     * Move a payment's contribution from its previous state to its new state.
+     * Pass null as before for a new payment and null as after for a deleted one.
+     */
+    public void apply(PaymentSnapshot before, PaymentSnapshot after) {
+        Map<BucketKey, RevenueRollup> deltas = new HashMap<>();
+        accumulate(deltas, before, -1);
+        accumulate(deltas, after, 1);
+
+        List<RevenueRollup> changes = deltas.values().stream()
+                .filter(delta -> !delta.isZero())
+                .sorted(BUCKET_ORDER)
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        // Waits while a rebuild runs, so the delta lands on the rebuilt rows, not the ones it replaces
+        revenueRollupStateRepository.findForShare(RevenueRollupState.ID);
+        changes.forEach(revenueRollupRepository::addToBucket);
+    }
+
+    /**
+     * Rollup rows for the day or month containing the date
+     */
+    @Transactional(readOnly = true)
+    public Summary getSummary(RollupPeriod period, LocalDate date) {
+        return new Summary(revenueRollupRepository.findByPeriodTypeAndPeriodStart(period, period.startOf(date)));
+    }
+
+    /**
+     * Rollup rows for an inclusive date range, combined from the daily rollups
+     */
+    @Transactional(readOnly = true)
+    public Summary getSummary(LocalDate startDate, LocalDate endDate) {
+        return new Summary(revenueRollupRepository.findByPeriodTypeAndPeriodStartBetween(
+                RollupPeriod.DAY, startDate, endDate));
+    }
+
+    /**
+     * Recompute every rollup from the payments table, reading payments in pages
+     * of {@value #REBUILD_PAGE_SIZE}, and replace the stored rows with the results.
+     * Payment updates wait until the rebuild commits.
+     *
+     * @return the number of payments processed
+     */
+    public int rebuild() {
+        return rebuild(lockState());
+    }
+
+    /**
+     * Build the rollups on the first start after they were introduced. Nodes starting
+     * together queue on the state row; the first rebuilds and the others find the rows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        RevenueRollupState state = lockState();
+        if (revenueRollupRepository.count() == 0 && paymentRepository.count() > 0) {
+            rebuild(state);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private RevenueRollupState lockState() {
+        return revenueRollupStateRepository.findForUpdate(RevenueRollupState.ID)
+                .orElseThrow(() -> new RuntimeException("Revenue rollup state row is missing (migration V4)"));
+    }
+
+    private int rebuild(RevenueRollupState state) {
+        log.info("Rebuilding revenue rollups");
+        revenueRollupRepository.deleteAllInBatch();
+
+        Map<BucketKey, RevenueRollup> buckets = new HashMap<>();
+        long afterId = 0L;
+        int processed = 0;
+        List<PaymentSnapshot> page;
+        do {
+            page = paymentRepository.findSnapshotsAfter(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (PaymentSnapshot snapshot : page) {
+                accumulate(buckets, snapshot, 1);
+                afterId = snapshot.paymentId();
+            }
+            processed += page.size();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+
+        // Absolute values: the rows were emptied above and nothing else writes them until commit
+        LocalDateTime now = LocalDateTime.now();
+        List<RevenueRollup> rows = buckets.values().stream().sorted(BUCKET_ORDER).toList();
+        rows.forEach(row -> row.setUpdatedAt(now));
+        revenueRollupRepository.saveAll(rows);
+
+        state.setRebuiltAt(now);
+        state.setRebuiltPayments(processed);
+
+        log.info("Revenue rollups rebuilt: {} payments, {} rows", processed, rows.size());
+        return processed;
+    }
+
+    private void accumulate(Map<BucketKey, RevenueRollup> buckets, PaymentSnapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.paymentDate() == null) {
+            return;
+        }
+
+        LocalDate day = snapshot.paymentDate().toLocalDate();
+        for (RollupPeriod period : RollupPeriod.values()) {
+            LocalDate start = period.startOf(day);
+            add(buckets, period, start, RollupDimension.TOTAL, TOTAL_KEY, null, snapshot, sign);
+            add(buckets, period, start, RollupDimension.METHOD, snapshot.method().name(), null, snapshot, sign);
+            add(buckets, period, start, RollupDimension.STATUS, snapshot.status().name(), null, snapshot, sign);
+            add(buckets, period, start, RollupDimension.DOCTOR, String.valueOf(snapshot.doctorId()),
+                    snapshot.doctorName(), snapshot, sign);
+            add(buckets, period, start, RollupDimension.TREATMENT, String.valueOf(snapshot.treatmentId()),
+                    snapshot.treatmentName(), snapshot, sign);
+        }
+    }
+
+    private void add(Map<BucketKey, RevenueRollup> buckets, RollupPeriod period, LocalDate start,
+                     RollupDimension dimension, String key, String label, PaymentSnapshot snapshot, int sign) {
+        RevenueRollup bucket = buckets.computeIfAbsent(new BucketKey(period, start, dimension, key),
+                k -> RevenueRollup.empty(period, start, dimension, key));
+        if (label != null) {
+            bucket.setLabel(label);
+        }
+
+        bucket.setPaymentCount(bucket.getPaymentCount() + sign);
+        if (snapshot.status() == PaymentStatus.SUCCESS) {
+            bucket.setSuccessCount(bucket.getSuccessCount() + sign);
+            bucket.setRevenue(bucket.getRevenue() + sign * amount(snapshot.totalAmount()));
+            bucket.setDoctorFees(bucket.getDoctorFees() + sign * amount(snapshot.doctorFee()));
+            bucket.setTreatmentFees(bucket.getTreatmentFees() + sign * amount(snapshot.treatmentFee()));
+            bucket.setClinicCharges(bucket.getClinicCharges() + sign * amount(snapshot.clinicCharges()));
+        } else if (snapshot.status() == PaymentStatus.REFUNDED) {
+            bucket.setRefundCount(bucket.getRefundCount() + sign);
+            bucket.setRefundAmount(bucket.getRefundAmount() + sign * amount(snapshot.refundAmount()));
+        }
+    }
+
+    private static double amount(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private record BucketKey(RollupPeriod period, LocalDate start, RollupDimension dimension, String key) {
+    }
+
+    /**
+     * Rollup rows for one period (or a range of days), merged per dimension value
+     */
+    public static final class Summary {
+        private final Map<RollupDimension, Map<String, RevenueRollup>> byDimension = new EnumMap<>(RollupDimension.class);
+
+        private Summary(List<RevenueRollup> rows) {
+            for (RevenueRollup row : rows) {
+                byDimension.computeIfAbsent(row.getDimension(), d -> new LinkedHashMap<>())
+                        .computeIfAbsent(row.getDimKey(), k -> RevenueRollup.empty(
+                                row.getPeriodType(), row.getPeriodStart(), row.getDimension(), k))
+                        .addAll(row);
+            }
+        }
+
+        public RevenueRollup getTotal() {
+            return byDimension.getOrDefault(RollupDimension.TOTAL, Collections.emptyMap())
+                    .getOrDefault(TOTAL_KEY, RevenueRollup.empty(null, null, RollupDimension.TOTAL, TOTAL_KEY));
+        }
+
+        /**
+         * Rows for one dimension keyed by dimension value (method or status name, doctor or treatment id)
+         */
+        public Map<String, RevenueRollup> get(RollupDimension dimension) {
+            return byDimension.getOrDefault(dimension, Collections.emptyMap());
+        }
+
+        public long getPaymentCount(RollupDimension dimension, String key) {
+            RevenueRollup row = get(dimension).get(key);
+            return row != null ? row.getPaymentCount() : 0L;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.model.AppointmentStatus;
+import com.example.ayurlink.repository.AppointmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps a compact bitmap of booked 15-minute slots per doctor and date.
+ * A day is 96 slots, stored in two longs (bit set = booked). Bitmaps are built
+ * from a date-scoped query on first use and then updated incrementally when
+ * appointments are booked, cancelled or rescheduled, so a slot lookup no longer
+ * depends on the size of a doctor's appointment history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotBitmapService {
+
+    static final int SLOTS_PER_DAY = 24 * 60 / TimeSlotService.SLOT_DURATION_MINUTES;
+    private static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    // Bounds staleness from updates made by other nodes or missed during a concurrent load
+    private static final Duration BITMAP_TTL = Duration.ofMinutes(5);
+    private static final int MAX_CACHED_DAYS = 20_000;
+
+    private final AppointmentRepository appointmentRepository;
+
+    private final Map<SlotDay, DayBitmap> bitmaps = new ConcurrentHashMap<>();
+
+    /**
+     * Get a snapshot of the booked slots for a doctor on a date
+     */
+    public BookedSlots getBookedSlots(Long doctorId, LocalDate date) {
+        SlotDay key = new SlotDay(doctorId, date);
+        DayBitmap bitmap = bitmaps.get(key);
+
+        if (bitmap == null || bitmap.isExpired()) {
+            evictIfFull();
+            bitmap = bitmaps.compute(key, (k, existing) ->
+                    existing != null && !existing.isExpired() ? existing : load(k));
+        }
+        return bitmap.snapshot();
+    }
+
+    public boolean isBooked(Long doctorId, LocalDate date, LocalTime time) {
+        return getBookedSlots(doctorId, date).isBooked(time);
+    }
+
+    /**
+     * Mark a slot as booked once the surrounding transaction commits
+     */
+    public void markBooked(Long doctorId, LocalDate date, LocalTime time) {
+        TransactionCallbacks.afterCommit(() -> bitmaps.computeIfPresent(new SlotDay(doctorId, date), (k, bitmap) -> {
+            bitmap.set(slotIndex(time));
+            return bitmap;
+        }));
+    }
+
+    /**
+     * Free a slot once the surrounding transaction commits
+     */
+    public void release(Long doctorId, LocalDate date, LocalTime time) {
+        TransactionCallbacks.afterCommit(() -> bitmaps.computeIfPresent(new SlotDay(doctorId, date), (k, bitmap) -> {
+            bitmap.clear(slotIndex(time));
+            return bitmap;
+        }));
+    }
+
+    public void evictDay(Long doctorId, LocalDate date) {
+        bitmaps.remove(new SlotDay(doctorId, date));
+    }
+
+    /**
+     * Slot index within the day. Times that are not on the 15-minute grid fall
+     * into the slot that contains them.
+     */
+    static int slotIndex(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / TimeSlotService.SLOT_DURATION_MINUTES;
+    }
+
+    private DayBitmap load(SlotDay key) {
+        List<LocalTime> bookedTimes = appointmentRepository.findBookedTimesByDoctorAndDate(
+                key.doctorId(), key.date(), AppointmentStatus.CANCELLED);
+
+        DayBitmap bitmap = new DayBitmap();
+        for (LocalTime time : bookedTimes) {
+            bitmap.set(slotIndex(time));
+        }
+        log.debug("Loaded slot bitmap for doctor {} on {} ({} booked)", key.doctorId(), key.date(), bookedTimes.size());
+        return bitmap;
+    }
+
+    private void evictIfFull() {
+        if (bitmaps.size() < MAX_CACHED_DAYS) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        bitmaps.keySet().removeIf(day -> day.date().isBefore(today));
+        if (bitmaps.size() >= MAX_CACHED_DAYS) {
+            bitmaps.clear();
+        }
+    }
+
+    private record SlotDay(Long doctorId, LocalDate date) {
+    }
+
+    private static final class DayBitmap {
+        private final AtomicLongArray words = new AtomicLongArray(WORDS_PER_DAY);
+        private final long loadedAt = System.nanoTime();
+
+        void set(int slot) {
+            long mask = 1L << (slot & 63);
+            words.getAndUpdate(slot >>> 6, word -> word | mask);
+        }
+
+        void clear(int slot) {
+            long mask = 1L << (slot & 63);
+            words.getAndUpdate(slot >>> 6, word -> word & ~mask);
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - loadedAt > BITMAP_TTL.toNanos();
+        }
+
+        BookedSlots snapshot() {
+            long[] copy = new long[WORDS_PER_DAY];
+            for (int i = 0; i < WORDS_PER_DAY; i++) {
+                copy[i] = words.get(i);
+            }
+            return new BookedSlots(copy);
+        }
+    }
+
+    /**
+     * Immutable view of one doctor's booked slots on one date
+     */
+    public static final class BookedSlots {
+        private final long[] words;
+
+        private BookedSlots(long[] words) {
+            this.words = words;
+        }
+
+        public boolean isBooked(LocalTime time) {
+            int slot = slotIndex(time);
+            return (words[slot >>> 6] & (1L << (slot & 63))) != 0;
+        }
+    }
+}
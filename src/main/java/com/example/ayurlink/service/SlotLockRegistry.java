@@ -0,0 +1,64 @@
+package com.example.ayurlink.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks keyed by (doctor, date, slot).
+ * Bookings for the same slot are serialised until the booking transaction commits or
+ * rolls back; bookings for different slots only wait on each other when they hash to the
+ * same stripe. The unique key on appointments still guards bookings made on other nodes.
+ */
+@Component
+public class SlotLockRegistry {
+
+    private static final int STRIPES = 1024;
+    private static final long LOCK_TIMEOUT_SECONDS = 10;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public SlotLockRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the slot for the rest of the current transaction
+     */
+    public void lockUntilTransactionEnds(Long doctorId, LocalDate date, LocalTime time) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Slot locks must be taken inside a transaction");
+        }
+
+        ReentrantLock lock = stripeFor(doctorId, date, time);
+        try {
+            if (!lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new RuntimeException("The booking system is busy. Please try again.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Booking was interrupted. Please try again.", e);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private ReentrantLock stripeFor(Long doctorId, LocalDate date, LocalTime time) {
+        int hash = Objects.hash(doctorId, date, time);
+        hash ^= (hash >>> 16);
+        return locks[hash & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.config.AsyncConfig;
+import com.example.ayurlink.config.CacheConfig;
+import com.example.ayurlink.dto.StorageIntegrityReport;
+import com.example.ayurlink.dto.StorageMigrationResult;
+import com.example.ayurlink.dto.StoredFileCount;
+import com.example.ayurlink.repository.PaymentRepository;
+import com.example.ayurlink.repository.StoredFileRepository;
+import com.example.ayurlink.repository.TreatmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background upkeep of the upload directory, run on the low-priority maintenance
+ * executor so request threads and the scheduler never wait for a directory walk:
+ * moving uploads stored flat under older names into the content-addressed layout,
+ * and a periodic integrity scan of Payment.receiptFileName / Treatment.image
+ * against the files on disk and the reference counts in stored_files.
+ */
+@Slf4j
+@Service
+public class StorageMaintenanceService {
+
+    // Names listed per category in a report; the counts are always complete
+    private static final int MAX_LISTED = 100;
+
+    private final FileStorageService fileStorageService;
+    private final PaymentRepository paymentRepository;
+    private final TreatmentRepository treatmentRepository;
+    private final StoredFileRepository storedFileRepository;
+    private final CacheManager cacheManager;
+    private final PublicPageCache publicPageCache;
+    private final Executor maintenanceExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    // Migration and scan both walk the whole directory; never run them side by side
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile StorageIntegrityReport lastReport;
+    private volatile StorageMigrationResult lastMigration;
+
+    @Autowired
+    public StorageMaintenanceService(FileStorageService fileStorageService,
+                                     PaymentRepository paymentRepository,
+                                     TreatmentRepository treatmentRepository,
+                                     StoredFileRepository storedFileRepository,
+                                     CacheManager cacheManager,
+                                     PublicPageCache publicPageCache,
+                                     @Qualifier(AsyncConfig.MAINTENANCE_EXECUTOR) Executor maintenanceExecutor,
+                                     PlatformTransactionManager transactionManager) {
+        this.fileStorageService = fileStorageService;
+        this.paymentRepository = paymentRepository;
+        this.treatmentRepository = treatmentRepository;
+        this.storedFileRepository = storedFileRepository;
+        this.cacheManager = cacheManager;
+        this.publicPageCache = publicPageCache;
+        this.maintenanceExecutor = maintenanceExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Queue a migration of older flat files into the sharded layout.
+     * Returns false when maintenance is already running.
+     */
+    public boolean startMigration() {
+        return submit("storage migration", this::migrateLegacyFiles);
+    }
+
+    /**
+     * Queue an integrity scan. Returns false when maintenance is already running.
+     */
+    public boolean startScan() {
+        return submit("storage integrity scan", this::scanIntegrity);
+    }
+
+    @Scheduled(fixedDelayString = "${ayurlink.storage.scan-interval-ms:21600000}", initialDelay = 300_000)
+    public void scheduledScan() {
+        startScan();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public StorageIntegrityReport getLastReport() {
+        return lastReport;
+    }
+
+    public StorageMigrationResult getLastMigration() {
+        return lastMigration;
+    }
+
+    // ==================== MIGRATION ====================
+
+    /**
+     * Each referenced flat file is copied into its shard and every record pointing
+     * at it is repointed in one transaction; the old file and its derivatives are
+     * deleted after commit. Flat files nothing refers to are left for the scan to report.
+     */
+    private void migrateLegacyFiles() {
+        long started = System.nanoTime();
+        Map<String, Long> references = referenceCounts();
+        int migrated = 0;
+        int skipped = 0;
+        int failed = 0;
+
+        for (String legacyFileName : fileStorageService.listStoredFiles()) {
+            if (fileStorageService.isContentAddressed(legacyFileName)) {
+                continue;
+            }
+            if (!references.containsKey(legacyFileName)) {
+                skipped++;
+                continue;
+            }
+            try {
+                String fileName = fileStorageService.contentAddressedName(legacyFileName);
+                String filePath = fileStorageService.getFilePath(fileName).toString();
+                transactionTemplate.executeWithoutResult(status -> {
+                    int repointed = paymentRepository.renameReceiptFile(legacyFileName, fileName, filePath)
+                            + treatmentRepository.renameImage(legacyFileName, fileName);
+                    // Recorded even when nothing is repointed any more, so the sweep can remove the copy
+                    fileStorageService.importLegacyFile(legacyFileName, fileName, repointed);
+                });
+                // A record saved from a copy loaded before the repoint may still name the old file
+                if (referenceCount(legacyFileName) == 0) {
+                    fileStorageService.deleteFile(legacyFileName);
+                }
+                migrated++;
+            } catch (RuntimeException e) {
+                failed++;
+                log.warn("Could not migrate {}: {}", legacyFileName, e.getMessage());
+            }
+        }
+
+        if (migrated > 0) {
+            // Cached treatments still carry the old image names
+            Stream.of(CacheConfig.TREATMENTS, CacheConfig.ACTIVE_TREATMENTS)
+                    .map(cacheManager::getCache)
+                    .filter(cache -> cache != null)
+                    .forEach(Cache::clear);
+            publicPageCache.invalidateAll();
+        }
+
+        lastMigration = new StorageMigrationResult(LocalDateTime.now(), elapsedMillis(started),
+                migrated, skipped, failed);
+        log.info("Storage migration finished: {} migrated, {} unreferenced skipped, {} failed",
+                migrated, skipped, failed);
+    }
+
+    // ==================== INTEGRITY SCAN ====================
+
+    /**
+     * Compare the records against the disk and stored_files. Uploads and deletes
+     * continue while the scan runs, so anything flagged is checked again on its own
+     * before it is reported.
+     */
+    private void scanIntegrity() {
+        long started = System.nanoTime();
+        Set<String> onDisk = fileStorageService.listStoredFiles();
+        Map<String, Long> references = referenceCounts();
+        Map<String, Integer> recorded = storedFileRepository.findAllCounts().stream()
+                .collect(Collectors.toMap(StoredFileCount::fileName, StoredFileCount::refCount));
+
+        List<String> missing = references.keySet().stream()
+                .filter(fileName -> !onDisk.contains(fileName))
+                .filter(fileName -> !fileStorageService.exists(fileName) && referenceCount(fileName) > 0)
+                .sorted()
+                .toList();
+
+        // Blobs whose last reference was released are the sweep's job, not orphans
+        List<String> orphans = onDisk.stream()
+                .filter(fileName -> !references.containsKey(fileName))
+                .filter(fileName -> !Integer.valueOf(0).equals(recorded.get(fileName)))
+                .filter(fileName -> fileStorageService.exists(fileName) && referenceCount(fileName) == 0)
+                .sorted()
+                .toList();
+
+        List<String> mismatches = references.entrySet().stream()
+                .filter(entry -> fileStorageService.isContentAddressed(entry.getKey()))
+                .filter(entry -> recorded.getOrDefault(entry.getKey(), 0) != entry.getValue().longValue())
+                .map(Map.Entry::getKey)
+                .map(this::describeMismatch)
+                .filter(description -> description != null)
+                .sorted()
+                .toList();
+
+        int legacyFiles = (int) onDisk.stream()
+                .filter(fileName -> !fileStorageService.isContentAddressed(fileName))
+                .count();
+
+        StorageIntegrityReport report = new StorageIntegrityReport(LocalDateTime.now(), elapsedMillis(started),
+                onDisk.size(), references.size(), legacyFiles,
+                missing.size(), limit(missing),
+                orphans.size(), limit(orphans),
+                mismatches.size(), limit(mismatches));
+        lastReport = report;
+
+        if (report.isClean()) {
+            log.info("Storage integrity scan: {} files, no problems ({} ms)", onDisk.size(), report.durationMs());
+        } else {
+            log.warn("Storage integrity scan: {} missing, {} orphaned, {} reference count mismatches",
+                    missing.size(), orphans.size(), mismatches.size());
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private boolean submit(String name, Runnable task) {
+        if (running.get()) {
+            return false;
+        }
+        maintenanceExecutor.execute(() -> {
+            if (!running.compareAndSet(false, true)) {
+                log.info("Skipping {}, maintenance already running", name);
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("{} failed", name, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Records referring to each stored name
+     */
+    private Map<String, Long> referenceCounts() {
+        return Stream.concat(paymentRepository.findAllReceiptFileNames().stream(),
+                        treatmentRepository.findAllImageNames().stream())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+
+    private long referenceCount(String fileName) {
+        return paymentRepository.countByReceiptFileName(fileName) + treatmentRepository.countByImage(fileName);
+    }
+
+    private String describeMismatch(String fileName) {
+        long referenced = referenceCount(fileName);
+        int recorded = storedFileRepository.findRefCountByFileName(fileName).orElse(0);
+        return recorded == referenced ? null
+                : fileName + " (recorded " + recorded + ", referenced " + referenced + ")";
+    }
+
+    private static List<String> limit(List<String> fileNames) {
+        return fileNames.size() > MAX_LISTED ? List.copyOf(fileNames.subList(0, MAX_LISTED)) : fileNames;
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -1,10 +1,6 @@
 package com.example.ayurlink.service;
 
-import com.example.ayurlink.model.Appointment;
-import com.example.ayurlink.model.AppointmentStatus;
-import com.example.ayurlink.model.Doctor;
-import com.example.ayurlink.repository.AppointmentRepository;
-import com.example.ayurlink.repository.DoctorRepository;
+import com.example.ayurlink.model.WeeklySchedule;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,142 +16,86 @@ import java.util.stream.Collectors;
 @Transactional
 public class TimeSlotService {
 
-    private final DoctorRepository doctorRepository;
-    private final AppointmentRepository appointmentRepository;
-    private static final int SLOT_DURATION_MINUTES = 15;
+    private final DoctorService doctorService;
+    private final SlotBitmapService slotBitmapService;
+    static final int SLOT_DURATION_MINUTES = 15;
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
+    // Read-write on purpose: a bitmap miss is loaded here and cached for minutes, so it must
+    // come from the primary rather than a replica that may not have the latest bookings yet
     public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-        String dayOfWeek = date.getDayOfWeek().toString().substring(0, 3).toUpperCase();
-        LocalTime startTime = null;
-        LocalTime endTime = null;
-
-        if (doctor.getAvailability() != null && !doctor.getAvailability().isEmpty()) {
-            for (String slot : doctor.getAvailability()) {
-                if (slot.startsWith(dayOfWeek)) {
-                    String[] parts = slot.split(" ");
-                    if (parts.length == 2) {
-                        String[] times = parts[1].split("-");
-                        if (times.length == 2) {
-                            startTime = LocalTime.parse(times[0]);
-                            endTime = LocalTime.parse(times[1]);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (startTime == null || endTime == null) {
-            return new ArrayList<>();
+        List<LocalTime> allSlots = getScheduledSlots(doctorId, date);
+        if (allSlots.isEmpty()) {
+            return allSlots;
         }
 
-        List<LocalTime> allSlots = generateTimeSlots(startTime, endTime);
-        Set<LocalTime> bookedSlots = getBookedTimeSlots(doctorId, date);
+        SlotBitmapService.BookedSlots bookedSlots = slotBitmapService.getBookedSlots(doctorId, date);
 
         return allSlots.stream()
-                .filter(slot -> !bookedSlots.contains(slot))
+                .filter(slot -> !bookedSlots.isBooked(slot))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * All slots in the doctor's working windows for that day, across every window
+     */
+    private List<LocalTime> getScheduledSlots(Long doctorId, LocalDate date) {
+        WeeklySchedule schedule = doctorService.getWeeklySchedule(doctorId);
+
+        List<LocalTime> slots = new ArrayList<>();
+        for (WeeklySchedule.TimeWindow window : schedule.getWindows(date.getDayOfWeek())) {
+            slots.addAll(generateTimeSlots(window.start(), window.end()));
+        }
+        return slots;
+    }
+
     private List<LocalTime> generateTimeSlots(LocalTime start, LocalTime end) {
         List<LocalTime> slots = new ArrayList<>();
         LocalTime current = start;
 
         while (current.isBefore(end)) {
             slots.add(current);
-            current = current.plusMinutes(SLOT_DURATION_MINUTES);
+            LocalTime next = current.plusMinutes(SLOT_DURATION_MINUTES);
+            if (next.isBefore(current)) {
+                break; // wrapped past midnight
+            }
+            current = next;
         }
 
         return slots;
     }
 
-    private Set<LocalTime> getBookedTimeSlots(Long doctorId, LocalDate date) {
-        List<Appointment> appointments = appointmentRepository.findByDoctorId(doctorId).stream()
-                .filter(apt -> apt.getAppointmentDate().equals(date))
-                .filter(apt -> apt.getStatus() != AppointmentStatus.CANCELLED)
-                .collect(Collectors.toList());
-
-        Set<LocalTime> bookedSlots = new HashSet<>();
-        for (Appointment apt : appointments) {
-            bookedSlots.add(apt.getAppointmentTime());
-        }
-
-        return bookedSlots;
-    }
-
+    // Read-write for the same reason as getAvailableTimeSlots
     public List<TimeSlotDTO> getAvailableTimeSlotsWithStatus(Long doctorId, LocalDate date) {
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-        String dayOfWeek = date.getDayOfWeek().toString().substring(0, 3).toUpperCase();
-        LocalTime startTime = null;
-        LocalTime endTime = null;
-
-        if (doctor.getAvailability() != null && !doctor.getAvailability().isEmpty()) {
-            for (String slot : doctor.getAvailability()) {
-                if (slot.startsWith(dayOfWeek)) {
-                    String[] parts = slot.split(" ");
-                    if (parts.length == 2) {
-                        String[] times = parts[1].split("-");
-                        if (times.length == 2) {
-                            startTime = LocalTime.parse(times[0]);
-                            endTime = LocalTime.parse(times[1]);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (startTime == null || endTime == null) {
+        List<LocalTime> allSlots = getScheduledSlots(doctorId, date);
+        if (allSlots.isEmpty()) {
             return new ArrayList<>();
         }
 
-        List<LocalTime> allSlots = generateTimeSlots(startTime, endTime);
-        Set<LocalTime> bookedSlots = getBookedTimeSlots(doctorId, date);
+        SlotBitmapService.BookedSlots bookedSlots = slotBitmapService.getBookedSlots(doctorId, date);
 
         return allSlots.stream()
                 .map(time -> new TimeSlotDTO(
-                        time.format(DateTimeFormatter.ofPattern("HH:mm")),
-                        !bookedSlots.contains(time)
+                        time.format(SLOT_FORMAT),
+                        !bookedSlots.isBooked(time)
                 ))
                 .collect(Collectors.toList());
     }
 
     public boolean isTimeSlotAvailable(Long doctorId, LocalDate date, LocalTime time) {
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-        String dayOfWeek = date.getDayOfWeek().toString().substring(0, 3).toUpperCase();
-        LocalTime startTime = null;
-        LocalTime endTime = null;
-
-        if (doctor.getAvailability() != null && !doctor.getAvailability().isEmpty()) {
-            for (String slot : doctor.getAvailability()) {
-                if (slot.startsWith(dayOfWeek)) {
-                    String[] parts = slot.split(" ");
-                    if (parts.length == 2) {
-                        String[] times = parts[1].split("-");
-                        if (times.length == 2) {
-                            startTime = LocalTime.parse(times[0]);
-                            endTime = LocalTime.parse(times[1]);
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        if (startTime == null || endTime == null ||
-                time.isBefore(startTime) || !time.isBefore(endTime)) {
+        if (!isWithinSchedule(doctorId, date, time)) {
             return false;
         }
 
-        Set<LocalTime> bookedSlots = getBookedTimeSlots(doctorId, date);
-        return !bookedSlots.contains(time);
+        return !slotBitmapService.isBooked(doctorId, date, time);
+    }
+
+    /**
+     * Whether the time falls inside one of the doctor's working windows for that day
+     */
+    public boolean isWithinSchedule(Long doctorId, LocalDate date, LocalTime time) {
+        WeeklySchedule schedule = doctorService.getWeeklySchedule(doctorId);
+        return schedule.isAvailable(date.getDayOfWeek(), time);
     }
 
     public static class TimeSlotDTO {
@@ -175,4 +115,4 @@ public class TimeSlotService {
             return available;
         }
     }
-}
\ No newline at end of file
+}
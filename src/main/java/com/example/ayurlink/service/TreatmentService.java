@@ -1,8 +1,12 @@
 package com.example.ayurlink.service;
 
+import com.example.ayurlink.config.CacheConfig;
 import com.example.ayurlink.model.Treatment;
 import com.example.ayurlink.repository.TreatmentRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,7 +21,10 @@ public class TreatmentService {
 
     private final TreatmentRepository treatmentRepository;
     private final FileStorageService fileStorageService;
+    private final PublicPageCache publicPageCache;
+    private final ImageDerivativeService imageDerivativeService;
 
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_TREATMENTS, allEntries = true)
     public Treatment createTreatment(Treatment treatment,MultipartFile imageFile) {
         treatment.setIsActive(true);
 
@@ -28,8 +35,9 @@ public class TreatmentService {
             System.out.println("File size: " + imageFile.getSize());
             System.out.println("Content type: " + imageFile.getContentType());
 
-            String fileName = fileStorageService.storeFile(imageFile, "treatment");
+            String fileName = fileStorageService.storeFile(imageFile);
             treatment.setImage(fileName);
+            imageDerivativeService.generateDerivatives(fileName);
 
             System.out.println("Stored filename: " + fileName);
             System.out.println("=== END DEBUG ===");
@@ -37,18 +45,22 @@ public class TreatmentService {
             System.out.println("No image file provided or file is empty");
         }
 
-        return treatmentRepository.save(treatment);
-
+        Treatment saved = treatmentRepository.save(treatment);
+        publicPageCache.invalidateAll();
+        return saved;
     }
 
+    @Cacheable(cacheNames = CacheConfig.TREATMENTS, unless = "#result == null")
     public Optional<Treatment> getTreatmentById(Long id) {
         return treatmentRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<Treatment> getAllTreatments() {
         return treatmentRepository.findAll();
     }
 
+    @Cacheable(CacheConfig.ACTIVE_TREATMENTS)
     public List<Treatment> getActiveTreatments() {
         return treatmentRepository.findByIsActiveTrue();
     }
@@ -58,10 +70,15 @@ public class TreatmentService {
                 .orElseThrow(() -> new RuntimeException("Treatment not found with id: " + id));
     }
 
+    @Transactional(readOnly = true)
     public List<Treatment> searchTreatments(String keyword) {
         return treatmentRepository.findByNameContainingIgnoreCase(keyword);
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.TREATMENTS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.ACTIVE_TREATMENTS, allEntries = true)
+    })
     public Treatment updateTreatment(Long id, Treatment updatedTreatment,MultipartFile imageFile) {
         Treatment existing = treatmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Treatment not found"));
@@ -78,12 +95,19 @@ public class TreatmentService {
             if (existing.getImage() != null) {
                 fileStorageService.deleteFile(existing.getImage());
             }
-            String fileName = fileStorageService.storeFile(imageFile, "treatment");
+            String fileName = fileStorageService.storeFile(imageFile);
             existing.setImage(fileName);
+            imageDerivativeService.generateDerivatives(fileName);
         }
-        return treatmentRepository.save(existing);
+        Treatment saved = treatmentRepository.save(existing);
+        publicPageCache.invalidateAll();
+        return saved;
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.TREATMENTS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.ACTIVE_TREATMENTS, allEntries = true)
+    })
     public void deleteTreatment(Long id) {
         Treatment treatment = treatmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Treatment not found"));
@@ -95,12 +119,18 @@ public class TreatmentService {
 
         // Delete from database
         treatmentRepository.deleteById(id);
+        publicPageCache.invalidateAll();
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.TREATMENTS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.ACTIVE_TREATMENTS, allEntries = true)
+    })
     public void deactivateTreatment(Long id) {
         Treatment treatment = treatmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Treatment not found"));
         treatment.setIsActive(false);
         treatmentRepository.save(treatment);
+        publicPageCache.invalidateAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+-- Composite indexes for the doctor/day appointment lookups, payment status
+-- listings and reports, and per-doctor earning queries
+
+CREATE INDEX idx_appointments_doctor_date ON appointments (doctor_id, appointment_date);
+
+CREATE INDEX idx_payments_status_date ON payments (status, payment_date);
+
+CREATE INDEX idx_doctor_earnings_doctor_status_date ON doctor_earnings (doctor_id, status, payment_date);
@@ -0,0 +1,6 @@
+-- ddl-auto=update created payments.status as an ENUM of the statuses known at the
+-- time and never alters existing columns, so UPLOADING (staged receipt uploads)
+-- could not be stored. Make it a VARCHAR, as the entity now maps it, so later
+-- statuses need no column change. Runs on MySQL and on H2 in MySQL mode.
+
+ALTER TABLE payments MODIFY COLUMN status VARCHAR(30) NOT NULL;
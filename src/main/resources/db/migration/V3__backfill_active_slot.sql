@@ -0,0 +1,14 @@
+-- appointments.active_slot was added by ddl-auto=update as NULL on every existing row,
+-- so bookings made before it existed did not hold their slot in uk_appointment_active_slot.
+-- Mark the earliest live booking of each slot as the holder. Slots that already have a
+-- holder, and any later duplicates of a slot (booked before the key existed), stay NULL.
+-- The inner select is wrapped in a derived table because MySQL will not read the table
+-- being updated in a plain subquery.
+
+UPDATE appointments SET active_slot = TRUE
+WHERE active_slot IS NULL
+  AND id IN (SELECT id FROM (
+      SELECT MIN(id) AS id FROM appointments
+      WHERE status <> 'CANCELLED'
+      GROUP BY doctor_id, appointment_date, appointment_time
+      HAVING COUNT(active_slot) = 0) AS slot_holders);
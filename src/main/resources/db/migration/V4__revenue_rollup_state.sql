@@ -0,0 +1,6 @@
+-- The single row revenue rollup updates and rebuilds lock against each other
+-- (the table itself is created by ddl-auto=update from RevenueRollupState)
+
+INSERT INTO revenue_rollup_state (id)
+SELECT 1 FROM DUAL
+WHERE NOT EXISTS (SELECT 1 FROM revenue_rollup_state WHERE id = 1);
@@ -0,0 +1,87 @@
+package com.example.ayurlink;
+
+import com.example.ayurlink.model.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Unsaved entities with every required column filled and unique keys randomised,
+ * so tests sharing one Spring context (and database) do not collide.
+ */
+public final class TestEntities {
+
+    private TestEntities() {
+    }
+
+    public static Doctor doctor(String... availability) {
+        Doctor doctor = new Doctor();
+        fillUser(doctor, Role.ROLE_DOCTOR);
+        doctor.setFullName("Dr. Test");
+        doctor.setSpecialization("Panchakarma");
+        doctor.setLicenseNumber("LIC-" + UUID.randomUUID());
+        doctor.setConsultationFee(1500.0);
+        doctor.setAvailability(new ArrayList<>(List.of(availability)));
+        return doctor;
+    }
+
+    public static Patient patient() {
+        Patient patient = new Patient();
+        fillUser(patient, Role.ROLE_PATIENT);
+        patient.setNic(UUID.randomUUID().toString().substring(0, 12));
+        patient.setFullName("Test Patient");
+        patient.setGender(Gender.OTHER);
+        return patient;
+    }
+
+    public static Admin admin(boolean superAdmin) {
+        Admin admin = new Admin();
+        fillUser(admin, superAdmin ? Role.ROLE_SUPER_ADMIN : Role.ROLE_ADMIN);
+        admin.setFullName("Test Admin");
+        admin.setIsSuperAdmin(superAdmin);
+        return admin;
+    }
+
+    public static Treatment treatment() {
+        Treatment treatment = new Treatment();
+        treatment.setName("Abhyanga");
+        treatment.setCost(3000.0);
+        treatment.setDuration(60);
+        return treatment;
+    }
+
+    public static Appointment appointment(Patient patient, Doctor doctor, Treatment treatment,
+                                          LocalDate date, LocalTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patient);
+        appointment.setDoctor(doctor);
+        appointment.setTreatment(treatment);
+        appointment.setAppointmentDate(date);
+        appointment.setAppointmentTime(time);
+        appointment.setStatus(AppointmentStatus.SCHEDULED);
+        return appointment;
+    }
+
+    public static Payment payment(Appointment appointment, PaymentStatus status) {
+        Payment payment = new Payment();
+        payment.setAppointment(appointment);
+        payment.setDoctorFee(appointment.getDoctor().getConsultationFee());
+        payment.setTreatmentFee(appointment.getTreatment().getCost());
+        payment.setPaymentMethod(PaymentMethod.CASH);
+        payment.setStatus(status);
+        return payment;
+    }
+
+    private static void fillUser(User user, Role role) {
+        String name = role.name().toLowerCase(Locale.ROOT) + "-" + UUID.randomUUID();
+        user.setUsername(name);
+        user.setPassword("{noop}secret");
+        user.setEmail(name + "@example.com");
+        user.setPhone("0770000000");
+        user.setRole(role);
+    }
+}
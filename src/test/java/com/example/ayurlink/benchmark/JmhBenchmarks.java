@@ -0,0 +1,33 @@
+package com.example.ayurlink.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks from the test phase; skipped unless -Dbenchmarks=true, e.g.
+ * mvn test -Dbenchmarks=true -Dtest=JmhBenchmarks#passwordHashing
+ * The benchmarks run in the test JVM (@Fork(0)), so compare results from the same machine.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class JmhBenchmarks {
+
+    @Test
+    void passwordHashing() throws Exception {
+        run(PasswordHashingBenchmark.class);
+    }
+
+    @Test
+    void idGeneration() throws Exception {
+        run(IdGenerationBenchmark.class);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static void run(Class<?> benchmark) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(benchmark.getName())
+                .build()).run();
+    }
+}
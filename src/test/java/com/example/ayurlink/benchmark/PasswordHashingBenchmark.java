@@ -0,0 +1,63 @@
+package com.example.ayurlink.benchmark;
+
+import com.example.ayurlink.config.AsyncConfig;
+import com.example.ayurlink.config.PasswordHashingProperties;
+import com.example.ayurlink.config.SecurityConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign-ins per second for each hashing setting: a password check through the same
+ * encoder and bounded hashing pool the application builds, with as many callers as
+ * there are CPUs (a login burst). Settings are algorithm:cost, where cost is the
+ * bcrypt strength or the argon2 memory in KiB (with ayurlink's default iterations).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(0)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"bcrypt:10", "bcrypt:12", "argon2:19456", "argon2:65536"})
+    public String setting;
+
+    private ThreadPoolTaskExecutor executor;
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        String[] parts = setting.split(":");
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setAlgorithm(parts[0]);
+        if (parts[0].equals("bcrypt")) {
+            properties.setBcryptStrength(Integer.parseInt(parts[1]));
+        } else {
+            properties.setArgon2Memory(Integer.parseInt(parts[1]));
+        }
+        // Room for every benchmark thread, so the measure is hashing, not rejected sign-ins
+        properties.setQueueCapacity(1_000);
+
+        executor = new AsyncConfig().passwordHashingExecutor(properties);
+        encoder = new SecurityConfig().passwordEncoder(properties, executor);
+        hash = encoder.encode(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public boolean signIn() {
+        return encoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.ayurlink.benchmark;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.model.Doctor;
+import com.example.ayurlink.model.Patient;
+import com.example.ayurlink.model.Payment;
+import com.example.ayurlink.model.PaymentMethod;
+import com.example.ayurlink.model.PaymentStatus;
+import com.example.ayurlink.model.Treatment;
+import com.example.ayurlink.repository.DoctorRepository;
+import com.example.ayurlink.repository.PatientRepository;
+import com.example.ayurlink.repository.PaymentRepository;
+import com.example.ayurlink.repository.TreatmentRepository;
+import com.example.ayurlink.service.PaymentService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency of the admin payment statistics on a seeded history: the grouped query
+ * behind PaymentService.getPaymentStatistics against the previous approach of
+ * loading every payment and counting in Java. Skipped unless -Dbenchmarks=true, e.g.
+ * mvn test -Dbenchmarks=true -Dtest=PaymentStatisticsBenchmark -DargLine=-Xmx3g
+ * The seeded size defaults to 1M payments (-Dbenchmarks.payments to change it); the
+ * Java-side baseline holds every row in memory, hence the larger heap.
+ *
+ * The baseline loads through findAllDetailed (one joined query). The old findAll()
+ * also issued a select per payment for its eager appointment, so the real gap was wider.
+ * H2 may hand back a cached result for a repeated query on unchanged tables, so read
+ * the grouped figure as a lower bound; point the h2 profile at MySQL for absolute numbers.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PaymentStatisticsBenchmark {
+
+    private static final int PAYMENTS = Integer.getInteger("benchmarks.payments", 1_000_000);
+    private static final int RUNS = 5;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String ticketPrefix = "BENCH-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+    @BeforeEach
+    void seed() {
+        Patient patient = patientRepository.save(TestEntities.patient());
+        Doctor doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        Treatment treatment = treatmentRepository.save(TestEntities.treatment());
+
+        long started = System.nanoTime();
+        // Past, completed appointments: active_slot stays NULL, so they hold no slot
+        jdbcTemplate.update("INSERT INTO appointments (patient_id, doctor_id, treatment_id, appointment_date, " +
+                        "appointment_time, ticket_number, status, created_at) " +
+                        "SELECT ?, ?, ?, DATEADD(DAY, -MOD(r.n, 1000), CURRENT_DATE), TIME '10:00', " +
+                        "CONCAT(?, r.n), 'COMPLETED', CURRENT_TIMESTAMP " +
+                        "FROM (SELECT \"X\" AS n FROM SYSTEM_RANGE(1, ?)) r",
+                patient.getId(), doctor.getId(), treatment.getId(), ticketPrefix, PAYMENTS);
+        jdbcTemplate.update("INSERT INTO payments (appointment_id, doctor_fee, treatment_fee, clinic_charges, " +
+                        "total_amount, payment_method, status, transaction_id, receipt_number, receipt_verified, " +
+                        "refund_amount, payment_date, created_at) " +
+                        "SELECT a.id, 1500.0, 3000.0, 500.0, 5000.0, " +
+                        "CASE MOD(a.id, 2) WHEN 0 THEN 'CASH' ELSE 'RECEIPT_UPLOAD' END, " +
+                        "CASE MOD(a.id, 5) WHEN 0 THEN 'PENDING' WHEN 1 THEN 'PENDING_VERIFICATION' " +
+                        "WHEN 2 THEN 'REFUNDED' ELSE 'SUCCESS' END, " +
+                        "CONCAT('T-', a.ticket_number), CONCAT('R-', a.ticket_number), FALSE, " +
+                        "CASE MOD(a.id, 5) WHEN 2 THEN 5000.0 ELSE NULL END, a.created_at, a.created_at " +
+                        "FROM appointments a WHERE a.ticket_number LIKE CONCAT(?, '%')",
+                ticketPrefix);
+        log.info("Seeded {} payments in {} ms", PAYMENTS, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @AfterEach
+    void removeSeed() {
+        jdbcTemplate.update("DELETE FROM payments WHERE appointment_id IN " +
+                "(SELECT id FROM appointments WHERE ticket_number LIKE CONCAT(?, '%'))", ticketPrefix);
+        jdbcTemplate.update("DELETE FROM appointments WHERE ticket_number LIKE CONCAT(?, '%')", ticketPrefix);
+    }
+
+    @Test
+    void groupedQueryAgainstLoadingEveryPayment() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Map<String, Object> grouped = paymentService.getPaymentStatistics();
+        Map<String, Object> loaded = readOnly.execute(status -> statisticsFromEntities());
+        for (String count : List.of("totalPayments", "successfulPayments", "pendingVerification",
+                "pendingCOD", "refunded", "cashPayments", "receiptPayments")) {
+            assertThat(grouped.get(count)).as(count).isEqualTo(loaded.get(count));
+        }
+        assertThat((Long) grouped.get("totalPayments")).isGreaterThanOrEqualTo(PAYMENTS);
+
+        double groupedMillis = medianMillis(paymentService::getPaymentStatistics);
+        double loadedMillis = medianMillis(() -> readOnly.execute(status -> statisticsFromEntities()));
+
+        log.info("Payment statistics over {} payments, median of {} runs: grouped query {} ms, " +
+                        "load and count {} ms ({}x)", PAYMENTS, RUNS, Math.round(groupedMillis),
+                Math.round(loadedMillis), Math.round(loadedMillis / Math.max(groupedMillis, 1)));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * The statistics as they were computed before the grouped query: every payment
+     * loaded, then counted and summed in Java
+     */
+    private Map<String, Object> statisticsFromEntities() {
+        List<Payment> allPayments = paymentRepository.findAllDetailed();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalPayments", (long) allPayments.size());
+        stats.put("successfulPayments", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS).count());
+        stats.put("pendingVerification", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.PENDING_VERIFICATION).count());
+        stats.put("pendingCOD", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.PENDING).count());
+        stats.put("refunded", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED).count());
+        stats.put("totalRevenue", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.SUCCESS)
+                .mapToDouble(Payment::getTotalAmount).sum());
+        stats.put("totalRefunds", allPayments.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.REFUNDED)
+                .mapToDouble(p -> p.getRefundAmount() != null ? p.getRefundAmount() : 0.0).sum());
+        stats.put("cashPayments", allPayments.stream()
+                .filter(p -> p.getPaymentMethod() == PaymentMethod.CASH).count());
+        stats.put("receiptPayments", allPayments.stream()
+                .filter(p -> p.getPaymentMethod() == PaymentMethod.RECEIPT_UPLOAD).count());
+        return stats;
+    }
+
+    private static double medianMillis(Supplier<?> action) {
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long started = System.nanoTime();
+            action.get();
+            millis[i] = (System.nanoTime() - started) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+}
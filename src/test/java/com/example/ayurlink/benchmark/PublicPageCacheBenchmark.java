@@ -0,0 +1,117 @@
+package com.example.ayurlink.benchmark;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.repository.TreatmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Anonymous requests for the home page over HTTP: served from PublicPageCache, against
+ * the same page rendered on every request (a query string makes PublicPageCacheFilter
+ * step aside), plus a revalidation answered with 304. Skipped unless -Dbenchmarks=true, e.g.
+ * mvn test -Dbenchmarks=true -Dtest=PublicPageCacheBenchmark
+ *
+ * Runs against the embedded server rather than MockMvc, whose response stream writes a
+ * byte at a time and would make the cached page look several times slower than it is.
+ * Templates are cached as in the prod profile. One client on loopback, so the figures
+ * are latency per request, not the server's throughput.
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"ayurlink.page-cache.enabled=true", "spring.thymeleaf.cache=true"})
+@ActiveProfiles({"h2", "test"})
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class PublicPageCacheBenchmark {
+
+    private static final int TREATMENTS = 12;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int REQUESTS = 5_000;
+    private static final int RUNS = 5;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    // No cookie handler, so every request is an anonymous first visit
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < TREATMENTS; i++) {
+            treatmentRepository.save(TestEntities.treatment());
+        }
+    }
+
+    @Test
+    void cachedHomePageAgainstRenderingIt() throws Exception {
+        HttpRequest rendered = home("/?fresh=1").build();
+        HttpRequest cached = home("/").build();
+
+        HttpResponse<byte[]> renderedResponse = send(rendered);
+        send(cached);
+        HttpResponse<byte[]> cachedResponse = send(cached);
+        String etag = cachedResponse.headers().firstValue(HttpHeaders.ETAG).orElse(null);
+
+        assertThat(renderedResponse.statusCode()).isEqualTo(200);
+        assertThat(renderedResponse.headers().firstValue(HttpHeaders.ETAG)).isEmpty();
+        assertThat(cachedResponse.statusCode()).isEqualTo(200);
+        assertThat(etag).isNotNull();
+        HttpRequest revalidation = home("/").header(HttpHeaders.IF_NONE_MATCH, etag).build();
+        assertThat(send(revalidation).statusCode()).isEqualTo(304);
+
+        double renderedMicros = medianMicros(rendered);
+        double cachedMicros = medianMicros(cached);
+        double notModifiedMicros = medianMicros(revalidation);
+
+        log.info("Home page ({} treatments, {} bytes), median of {} runs of {} requests: rendered {} us, " +
+                        "cached {} us ({}x), 304 {} us", TREATMENTS, cachedResponse.body().length, RUNS, REQUESTS,
+                Math.round(renderedMicros), Math.round(cachedMicros),
+                Math.round(renderedMicros / Math.max(cachedMicros, 1)), Math.round(notModifiedMicros));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private HttpRequest.Builder home(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Median over the runs of the mean time per request, after a warm-up
+     */
+    private double medianMicros(HttpRequest request) throws Exception {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            send(request);
+        }
+        double[] micros = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                send(request);
+            }
+            micros[run] = (System.nanoTime() - started) / 1_000.0 / REQUESTS;
+        }
+        Arrays.sort(micros);
+        return micros[RUNS / 2];
+    }
+}
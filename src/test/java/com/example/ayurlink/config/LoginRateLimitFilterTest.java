@@ -0,0 +1,88 @@
+package com.example.ayurlink.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class LoginRateLimitFilterTest {
+
+    @Autowired
+    private LoginRateLimitFilter loginRateLimitFilter;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private AuthenticationConfiguration authenticationConfiguration;
+
+    @Test
+    void signInAttemptsAloneDoNotUseUpTheUsernameLimit() throws Exception {
+        String username = "victim-" + UUID.randomUUID();
+
+        // More than the username burst, each from its own address, none failing
+        for (int i = 0; i < properties.getUsernameBurst() * 3; i++) {
+            assertThat(post("/perform-login", username, "10.0.1." + i)).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void wrongPasswordsUseUpTheUsernameLimit() throws Exception {
+        String username = "target-" + UUID.randomUUID();
+        AuthenticationManager authenticationManager = authenticationConfiguration.getAuthenticationManager();
+
+        for (int i = 0; i < properties.getUsernameBurst(); i++) {
+            assertThat(post("/perform-login", username, "10.0.2." + i)).isEqualTo(200);
+            assertThatThrownBy(() -> authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(username, "wrong")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        assertThat(post("/perform-login", username, "10.0.2.200")).isEqualTo(429);
+    }
+
+    @Test
+    void registrationDoesNotTouchTheUsernameLimit() throws Exception {
+        String username = "newcomer-" + UUID.randomUUID();
+
+        for (int i = 0; i < properties.getUsernameBurst() * 3; i++) {
+            assertThat(post("/register", username, "10.0.3." + i)).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void eachAddressIsLimitedPerAttempt() throws Exception {
+        String address = "10.0.4.1";
+        for (int i = 0; i < properties.getIpBurst(); i++) {
+            assertThat(post("/perform-login", "user-" + UUID.randomUUID(), address)).isEqualTo(200);
+        }
+
+        assertThat(post("/perform-login", "user-" + UUID.randomUUID(), address)).isEqualTo(429);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private int post(String path, String username, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        request.setRemoteAddr(address);
+        request.setParameter("username", username);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        loginRateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
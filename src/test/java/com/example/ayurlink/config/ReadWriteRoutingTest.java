@@ -0,0 +1,141 @@
+package com.example.ayurlink.config;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.model.Doctor;
+import com.example.ayurlink.model.Role;
+import com.example.ayurlink.repository.DoctorRepository;
+import com.example.ayurlink.service.AppointmentService;
+import com.example.ayurlink.service.DoctorEarningService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Which pool each transaction of a request takes its connection from (the h2 profile
+ * runs a primary and a replica pool). /doctor/earnings reads the completed appointments
+ * read-only, then fills the earning summary cache: the first must reach the replica,
+ * the second the primary, whatever ran before it in the request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ReadWriteRoutingTest {
+
+    private static final String COMPLETED_APPOINTMENTS =
+            AppointmentService.class.getName() + ".getCompletedAppointmentsByDoctor";
+    private static final String EARNING_SUMMARY =
+            DoctorEarningService.class.getName() + ".getDoctorEarningSummary";
+
+    // Filled by the pool wrappers in RecordingPools
+    private static final List<Checkout> CHECKOUTS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    private Doctor doctor;
+
+    @BeforeEach
+    void setUp() {
+        doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        CHECKOUTS.clear();
+    }
+
+    @Test
+    void readOnlyAndCacheFillingCallsInOneRequestUseTheirOwnPools() throws Exception {
+        mockMvc.perform(get("/doctor/earnings").session(signedIn(doctor)))
+                .andExpect(status().isOk());
+
+        assertThat(poolsFor(COMPLETED_APPOINTMENTS)).containsOnly(DataSourceConfig.REPLICA_DATA_SOURCE);
+        assertThat(poolsFor(EARNING_SUMMARY)).containsOnly(DataSourceConfig.PRIMARY_DATA_SOURCE);
+    }
+
+    @Test
+    void cacheFillingCallAfterAReadWriteOneStillUsesThePrimary() throws Exception {
+        // The dashboard starts with a read-write lookup of the doctor
+        mockMvc.perform(get("/doctor/dashboard").session(signedIn(doctor)))
+                .andExpect(status().isOk());
+
+        assertThat(poolsFor(EARNING_SUMMARY)).containsOnly(DataSourceConfig.PRIMARY_DATA_SOURCE);
+        assertThat(poolsFor(AppointmentService.class.getName() + ".getDoctorAppointments"))
+                .containsOnly(DataSourceConfig.REPLICA_DATA_SOURCE);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private List<String> poolsFor(String transaction) {
+        List<String> pools = CHECKOUTS.stream()
+                .filter(checkout -> transaction.equals(checkout.transaction()))
+                .map(Checkout::pool)
+                .toList();
+        assertThat(pools).as("connections taken by " + transaction).isNotEmpty();
+        return pools;
+    }
+
+    private static MockHttpSession signedIn(Doctor doctor) {
+        AccountPrincipal principal = new AccountPrincipal(doctor.getId(), doctor.getUsername(), null, true,
+                Role.ROLE_DOCTOR, doctor.getFullName());
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                        principal, null, principal.getAuthorities())));
+        return session;
+    }
+
+    /**
+     * A physical connection taken from a pool, and the transaction it was taken for
+     */
+    record Checkout(String pool, String transaction) {
+    }
+
+    @TestConfiguration
+    static class RecordingPools {
+
+        @Bean
+        static BeanPostProcessor recordingPoolWrapper() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource
+                            && (beanName.equals(DataSourceConfig.PRIMARY_DATA_SOURCE)
+                            || beanName.equals(DataSourceConfig.REPLICA_DATA_SOURCE))) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                CHECKOUTS.add(new Checkout(beanName,
+                                        TransactionSynchronizationManager.getCurrentTransactionName()));
+                                return super.getConnection();
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+}
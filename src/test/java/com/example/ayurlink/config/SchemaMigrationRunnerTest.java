@@ -0,0 +1,84 @@
+package com.example.ayurlink.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class SchemaMigrationRunnerTest {
+
+    @Autowired
+    private SchemaMigrationRunner schemaMigrationRunner;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void appliesEveryScriptOnce() throws Exception {
+        schemaMigrationRunner.afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_migrations ORDER BY version", Integer.class))
+                .containsExactly(1, 2, 3, 4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migration_steps", Integer.class))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT locked_by FROM schema_migration_lock WHERE id = 1", String.class))
+                .isNull();
+    }
+
+    @Test
+    void resumesAPartlyAppliedScriptAfterItsLastGoodStatement() throws Exception {
+        // V1's three indexes exist but the run "failed" before it was recorded;
+        // replaying any CREATE INDEX would fail with a duplicate index
+        jdbcTemplate.update("DELETE FROM schema_migrations WHERE version = 1");
+        for (int step = 0; step < 3; step++) {
+            jdbcTemplate.update("INSERT INTO schema_migration_steps (version, step) VALUES (1, ?)", step);
+        }
+
+        schemaMigrationRunner.afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_migrations ORDER BY version", Integer.class))
+                .containsExactly(1, 2, 3, 4);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM schema_migration_steps", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void takesOverALockLeftByANodeThatDied() throws Exception {
+        jdbcTemplate.update("UPDATE schema_migration_lock SET locked_by = 'dead-node', " +
+                "locked_at = TIMESTAMP '2000-01-01 00:00:00' WHERE id = 1");
+
+        schemaMigrationRunner.afterPropertiesSet();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT locked_by FROM schema_migration_lock WHERE id = 1", String.class))
+                .isNull();
+    }
+
+    @Test
+    void hotQueriesDoNotScanWholeTables() {
+        // H2 marks a full scan as "tableScan" in the plan; on empty tables it may pick an
+        // equally cheap foreign key index, so only the payments plan names a specific index
+        assertThat(plan("SELECT * FROM appointments WHERE doctor_id = 1 AND appointment_date = DATE '2026-01-05'"))
+                .doesNotContain("tableScan");
+        assertThat(plan("SELECT * FROM payments WHERE status = 'SUCCESS' AND payment_date >= TIMESTAMP '2026-01-01 00:00:00'"))
+                .doesNotContain("tableScan")
+                .contains("idx_payments_status_date");
+        assertThat(plan("SELECT * FROM doctor_earnings WHERE doctor_id = 1 AND status = 'PENDING'"))
+                .doesNotContain("tableScan");
+    }
+
+    @Test
+    void planCheckDetectsFullScans() {
+        assertThat(plan("SELECT * FROM payments WHERE total_amount > 1000")).contains("tableScan");
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private String plan(String query) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ayurlink.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenSignerTest {
+
+    private final TokenSigner signer = new TokenSigner(properties("k1"));
+
+    @Test
+    void opensWhatItSealedForTheSamePurpose() {
+        String value = signer.seal(TokenSigner.SESSION, "42:ADMIN:9999999999:YQ:Qg");
+
+        assertThat(signer.open(TokenSigner.SESSION, value)).contains("42:ADMIN:9999999999:YQ:Qg");
+    }
+
+    @Test
+    void doesNotOpenAValueSealedForAnotherPurpose() {
+        String flash = signer.seal(TokenSigner.FLASH, "42:ADMIN:9999999999:YQ:Qg");
+
+        assertThat(signer.open(TokenSigner.SESSION, flash)).isEmpty();
+        assertThat(signer.open(TokenSigner.FLASH, flash)).isPresent();
+    }
+
+    @Test
+    void rejectsAlteredPayloadsAndUnknownKeys() {
+        String value = signer.seal(TokenSigner.SESSION, "payload");
+        String[] parts = value.split("\\.");
+        String altered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("other".getBytes()) + "." + parts[2];
+        TokenSigner otherKeys = new TokenSigner(properties("k2"));
+
+        assertThat(signer.open(TokenSigner.SESSION, altered)).isEmpty();
+        assertThat(otherKeys.open(TokenSigner.SESSION, value)).isEmpty();
+        assertThat(signer.open(TokenSigner.SESSION, "not-a-token")).isEmpty();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private static SessionTokenProperties properties(String keyId) {
+        byte[] secret = new byte[32];
+        secret[0] = (byte) keyId.hashCode();
+        SessionTokenProperties properties = new SessionTokenProperties();
+        properties.setEnabled(true);
+        properties.setKeys(Map.of(keyId, Base64.getEncoder().encodeToString(secret)));
+        properties.setSigningKey(keyId);
+        return properties;
+    }
+}
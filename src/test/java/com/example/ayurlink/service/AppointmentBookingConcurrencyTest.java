@@ -0,0 +1,134 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.model.Appointment;
+import com.example.ayurlink.model.Doctor;
+import com.example.ayurlink.model.Patient;
+import com.example.ayurlink.model.Treatment;
+import com.example.ayurlink.repository.AppointmentRepository;
+import com.example.ayurlink.repository.DoctorRepository;
+import com.example.ayurlink.repository.PatientRepository;
+import com.example.ayurlink.repository.TreatmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class AppointmentBookingConcurrencyTest {
+
+    private static final int ATTEMPTS = 2_000;
+    private static final int THREADS = 32;
+    private static final LocalTime TIME = LocalTime.of(10, 0);
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    private final LocalDate date = LocalDate.now().plusDays(30);
+    private Doctor doctor;
+    private Treatment treatment;
+    private List<Patient> patients;
+
+    @BeforeEach
+    void setUp() {
+        String day = date.getDayOfWeek().name().substring(0, 3);
+        doctor = doctorRepository.save(TestEntities.doctor(day + " 09:00-17:00"));
+        treatment = treatmentRepository.save(TestEntities.treatment());
+        patients = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            patients.add(patientRepository.save(TestEntities.patient()));
+        }
+    }
+
+    @Test
+    void exactlyOneOfManyParallelBookingsForOneSlotWins() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                Long patientId = patients.get(i % THREADS).getId();
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        appointmentService.bookAppointment(patientId, doctor.getId(), treatment.getId(), date, TIME);
+                        booked.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.computeIfAbsent(e.getMessage(), m -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(booked.get()).isEqualTo(1);
+        assertThat(failures.keySet())
+                .containsExactly("This time slot is no longer available. Please select another time.");
+        assertThat(failures.values().iterator().next().get()).isEqualTo(ATTEMPTS - 1);
+        assertThat(appointmentRepository.findByDoctorIdAndAppointmentDateAndAppointmentTime(doctor.getId(), date, TIME))
+                .hasSize(1);
+    }
+
+    @Test
+    void databaseRejectsASecondLiveBookingOfTheSameSlot() {
+        appointmentService.bookAppointment(patients.get(0).getId(), doctor.getId(), treatment.getId(), date, TIME);
+
+        // As another node would write it, past this node's slot lock
+        Appointment duplicate = TestEntities.appointment(patients.get(1), doctor, treatment, date, TIME);
+
+        assertThatThrownBy(() -> appointmentRepository.saveAndFlush(duplicate))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(Appointment.ACTIVE_SLOT_CONSTRAINT);
+    }
+
+    @Test
+    void cancelledSlotCanBeBookedAgain() {
+        Appointment first = appointmentService.bookAppointment(
+                patients.get(0).getId(), doctor.getId(), treatment.getId(), date, TIME);
+        appointmentService.cancelAppointment(first.getId());
+
+        Appointment second = appointmentService.bookAppointment(
+                patients.get(1).getId(), doctor.getId(), treatment.getId(), date, TIME);
+
+        assertThat(second.getActiveSlot()).isTrue();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.repository.StoredFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class FileStorageServiceTest {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() {
+        content = ("upload " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void duplicateUploadSharesOneBlob() throws Exception {
+        String first = store();
+        String second = store();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(storedFileRepository.findRefCountByFileName(first)).contains(2);
+        assertThat(Files.readAllBytes(fileStorageService.getExistingFilePath(first))).isEqualTo(content);
+        assertThat(Files.list(fileStorageService.getFilePath(first).getParent())
+                .filter(path -> path.getFileName().toString().startsWith(first.substring(0, 64))))
+                .hasSize(1);
+    }
+
+    @Test
+    void deletingEveryReferenceLeavesTheBlobForTheSweep() {
+        String fileName = store();
+        store();
+
+        assertThat(delete(fileName)).isTrue();
+        assertThat(delete(fileName)).isTrue();
+        assertThat(delete(fileName)).isFalse();
+
+        assertThat(storedFileRepository.findRefCountByFileName(fileName)).contains(0);
+        assertThat(fileStorageService.exists(fileName)).isTrue();
+    }
+
+    @Test
+    void sweepRemovesAnUnreferencedBlobOnlyAfterTheGracePeriod() {
+        String fileName = store();
+        delete(fileName);
+
+        fileStorageService.removeUnreferencedFiles();
+        assertThat(fileStorageService.exists(fileName)).isTrue();
+
+        releasedMinutesAgo(fileName, 10);
+        fileStorageService.removeUnreferencedFiles();
+
+        assertThat(fileStorageService.exists(fileName)).isFalse();
+        assertThat(storedFileRepository.findRefCountByFileName(fileName)).isEmpty();
+    }
+
+    @Test
+    void uploadWaitingOnTheSweepPutsTheBlobBack() throws Exception {
+        String fileName = store();
+        delete(fileName);
+        releasedMinutesAgo(fileName, 10);
+
+        // The sweep runs inside a transaction that already holds the row, so the upload
+        // below is queued behind the deletion and has to find the blob gone
+        CompletableFuture<String> upload = transactionTemplate.execute(status -> {
+            storedFileRepository.findByFileName(fileName);
+            CompletableFuture<String> waiting = CompletableFuture.supplyAsync(this::store);
+            sleep();
+            assertThat(waiting).isNotDone();
+
+            fileStorageService.removeUnreferencedFiles();
+            assertThat(fileStorageService.exists(fileName)).isFalse();
+            return waiting;
+        });
+
+        assertThat(upload.get(10, TimeUnit.SECONDS)).isEqualTo(fileName);
+        assertThat(storedFileRepository.findRefCountByFileName(fileName)).contains(1);
+        assertThat(Files.readAllBytes(fileStorageService.getExistingFilePath(fileName))).isEqualTo(content);
+    }
+
+    @Test
+    void blobStoredByARolledBackTransactionIsLeftToTheSweep() {
+        String fileName = transactionTemplate.execute(status -> {
+            String stored = fileStorageService.storeFile(upload());
+            status.setRollbackOnly();
+            return stored;
+        });
+
+        assertThat(fileStorageService.exists(fileName)).isTrue();
+        assertThat(storedFileRepository.findRefCountByFileName(fileName)).contains(0);
+
+        releasedMinutesAgo(fileName, 10);
+        fileStorageService.removeUnreferencedFiles();
+
+        assertThat(fileStorageService.exists(fileName)).isFalse();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private MockMultipartFile upload() {
+        return new MockMultipartFile("file", "scan.pdf", "application/pdf", content);
+    }
+
+    private String store() {
+        return transactionTemplate.execute(status -> fileStorageService.storeFile(upload()));
+    }
+
+    private boolean delete(String fileName) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> fileStorageService.deleteFile(fileName)));
+    }
+
+    private void releasedMinutesAgo(String fileName, int minutes) {
+        jdbcTemplate.update("UPDATE stored_files SET updated_at = ? WHERE file_name = ?",
+                LocalDateTime.now().minusMinutes(minutes), fileName);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.dto.KeysetPage;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing pages and detail screens load their rows with patient, doctor and treatment
+ * in one statement, however many rows are shown; plain findById stays unjoined.
+ */
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class ListingQueryCountTest {
+
+    private static final int ROWS = 30;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Doctor doctor;
+    private Long paymentId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        LocalDate date = LocalDate.now().plusDays(60);
+        for (int i = 0; i < ROWS; i++) {
+            // A patient and treatment per row, so lazy loading would cost a query per row
+            Patient patient = patientRepository.save(TestEntities.patient());
+            Treatment treatment = treatmentRepository.save(TestEntities.treatment());
+            Appointment appointment = appointmentRepository.save(
+                    TestEntities.appointment(patient, doctor, treatment, date, LocalTime.of(9, 0).plusMinutes(i)));
+            paymentId = paymentRepository.save(TestEntities.payment(appointment, PaymentStatus.SUCCESS)).getId();
+        }
+    }
+
+    @Test
+    void appointmentPagesTakeOneStatementWhateverTheirSize() {
+        for (int size : new int[] {5, 25}) {
+            KeysetPage<Appointment> page = countStatements(1, () -> appointmentService.getAppointmentsPage(
+                    null, doctor.getId(), null, null, KeysetPage.Order.NEWEST, null, null, size));
+
+            assertThat(page.getItems()).hasSize(size);
+            page.getItems().forEach(ListingQueryCountTest::render);
+        }
+    }
+
+    @Test
+    void paymentPagesTakeOneStatementWhateverTheirSize() {
+        for (int size : new int[] {5, 25}) {
+            KeysetPage<Payment> page = countStatements(1, () -> paymentService.getPaymentsPage(
+                    null, doctor.getId(), null, null, KeysetPage.Order.NEWEST, null, null, size));
+
+            assertThat(page.getItems()).hasSize(size);
+            page.getItems().forEach(payment -> render(payment.getAppointment()));
+        }
+    }
+
+    @Test
+    void detailScreensTakeOneStatement() {
+        Payment payment = countStatements(1, () -> paymentService.getPaymentById(paymentId).orElseThrow());
+        render(payment.getAppointment());
+
+        Appointment appointment = countStatements(1, () ->
+                appointmentService.getAppointmentById(payment.getAppointment().getId()).orElseThrow());
+        render(appointment);
+    }
+
+    @Test
+    void plainFindByIdDoesNotJoinTheDetails() {
+        Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+
+        assertThat(Hibernate.isInitialized(payment.getAppointment().getPatient())).isFalse();
+        assertThat(Hibernate.isInitialized(payment.getAppointment().getDoctor())).isFalse();
+        assertThat(Hibernate.isInitialized(payment.getAppointment().getTreatment())).isFalse();
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private <T> T countStatements(long expected, Supplier<T> work) {
+        statistics.clear();
+        T result = work.get();
+        assertThat(statistics.getPrepareStatementCount()).as("statements").isEqualTo(expected);
+        return result;
+    }
+
+    /**
+     * Read what the listing templates show; throws if an association was left unloaded
+     */
+    private static void render(Appointment appointment) {
+        assertThat(appointment.getPatient().getFullName()).isNotBlank();
+        assertThat(appointment.getDoctor().getFullName()).isNotBlank();
+        assertThat(appointment.getTreatment().getName()).isNotBlank();
+    }
+}
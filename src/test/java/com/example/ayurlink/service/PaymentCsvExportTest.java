@@ -0,0 +1,56 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class PaymentCsvExportTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Test
+    void streamsEveryPaymentInTheRange() throws Exception {
+        Doctor doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        Treatment treatment = treatmentRepository.save(TestEntities.treatment());
+        Patient patient = patientRepository.save(TestEntities.patient());
+        Appointment appointment = appointmentRepository.save(TestEntities.appointment(
+                patient, doctor, treatment, LocalDate.now().plusDays(120), LocalTime.of(11, 0)));
+        Payment payment = paymentRepository.save(TestEntities.payment(appointment, PaymentStatus.SUCCESS));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        paymentService.writePaymentsCsv(LocalDate.now(), LocalDate.now(), out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(csv).startsWith("Receipt,Transaction,Patient,NIC,Doctor,Treatment,Amount,Method,Status,Date\n");
+        assertThat(csv).contains(payment.getReceiptNumber(), patient.getNic(), "Dr. Test", "Abhyanga");
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class ReceiptIngestionServiceTest {
+
+    @Autowired
+    private ReceiptIngestionService receiptIngestionService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Appointment appointment;
+    private byte[] content;
+    private Path blocker;
+
+    @BeforeEach
+    void setUp() {
+        Doctor doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        Treatment treatment = treatmentRepository.save(TestEntities.treatment());
+        Patient patient = patientRepository.save(TestEntities.patient());
+        appointment = appointmentRepository.save(TestEntities.appointment(
+                patient, doctor, treatment, LocalDate.now().plusDays(60), LocalTime.of(9, 0)));
+        content = ("receipt " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void removeBlocker() throws Exception {
+        if (blocker != null) {
+            Files.deleteIfExists(blocker);
+        }
+    }
+
+    @Test
+    void storedReceiptMovesThePaymentToVerification() throws Exception {
+        Payment payment = receiptIngestionService.submit(appointment.getId(), receipt(), "bank transfer");
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.UPLOADING);
+
+        Payment stored = awaitStored(payment.getId());
+
+        assertThat(stored.getStatus()).isEqualTo(PaymentStatus.PENDING_VERIFICATION);
+        assertThat(stored.getReceiptFileName()).isEqualTo(sha256(content) + ".pdf");
+        assertThat(Files.readAllBytes(fileStorageService.getExistingFilePath(stored.getReceiptFileName())))
+                .isEqualTo(content);
+    }
+
+    @Test
+    void receiptThatCannotBeStoredFailsThePayment() throws Exception {
+        // A plain file where the blob's shard directory should be, so moving it into place fails
+        Path shard = fileStorageService.getFilePath(sha256(content) + ".pdf").getParent();
+        Files.createDirectories(shard.getParent());
+        blocker = Files.createFile(shard);
+
+        Payment payment = receiptIngestionService.submit(appointment.getId(), receipt(), "bank transfer");
+        Payment failed = awaitStored(payment.getId());
+
+        assertThat(failed.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(failed.getReceiptFileName()).isNull();
+        assertThat(failed.getPaymentNotes()).contains("Receipt could not be stored");
+    }
+
+    @Test
+    void staleSweepDuringCompletionLeavesTheStoredReceipt() throws Exception {
+        Payment payment = paymentService.createStagedReceiptPayment(appointment.getId(), receipt(), "bank transfer");
+        jdbcTemplate.update("UPDATE payments SET payment_date = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(1), payment.getId());
+        FileStorageService.StagedFile staged = fileStorageService.stage(receipt());
+        String fileName = fileStorageService.prepare(staged);
+        CountDownLatch completed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // Completes the upload but holds its transaction open until told to commit
+        CompletableFuture<Void> completion = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            paymentService.completeReceiptUpload(payment.getId(), staged, fileName);
+            completed.countDown();
+            await(commit);
+        }));
+        completed.await(10, TimeUnit.SECONDS);
+
+        // Still sees the payment as UPLOADING, then waits on its row
+        CompletableFuture<Integer> sweep = CompletableFuture.supplyAsync(() ->
+                paymentService.failStaleReceiptUploads(LocalDateTime.now().minusMinutes(30)));
+        Thread.sleep(300);
+        assertThat(sweep).isNotDone();
+
+        commit.countDown();
+        completion.get(10, TimeUnit.SECONDS);
+
+        assertThat(sweep.get(10, TimeUnit.SECONDS)).isZero();
+        Payment stored = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(PaymentStatus.PENDING_VERIFICATION);
+        assertThat(stored.getReceiptFileName()).isEqualTo(fileName);
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private MockMultipartFile receipt() {
+        return new MockMultipartFile("receiptFile", "receipt.pdf", "application/pdf", content);
+    }
+
+    /**
+     * The payment once the receipt executor has moved it out of UPLOADING
+     */
+    private Payment awaitStored(Long paymentId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+            if (payment.getStatus() != PaymentStatus.UPLOADING) {
+                return payment;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Receipt for payment " + paymentId + " was not processed");
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ayurlink.service;
+
+import com.example.ayurlink.TestEntities;
+import com.example.ayurlink.dto.PaymentSnapshot;
+import com.example.ayurlink.model.*;
+import com.example.ayurlink.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class RevenueRollupServiceTest {
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private RevenueRollupStateRepository revenueRollupStateRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private TreatmentRepository treatmentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Doctor doctor;
+    private Treatment treatment;
+
+    @BeforeEach
+    void setUp() {
+        doctor = doctorRepository.save(TestEntities.doctor("MON 09:00-17:00"));
+        treatment = treatmentRepository.save(TestEntities.treatment());
+    }
+
+    @Test
+    void rebuildWritesTheSameTotalsAsTheIncrementalUpdates() {
+        for (int i = 0; i < 3; i++) {
+            recordPayment(i);
+        }
+        RevenueRollup incremental = doctorBucket();
+        assertThat(incremental.getPaymentCount()).isEqualTo(3);
+
+        revenueRollupService.rebuild();
+        revenueRollupService.rebuild();
+
+        RevenueRollup rebuilt = doctorBucket();
+        assertThat(rebuilt.getPaymentCount()).isEqualTo(3);
+        assertThat(rebuilt.getSuccessCount()).isEqualTo(3);
+        assertThat(rebuilt.getRevenue()).isEqualTo(incremental.getRevenue());
+        assertThat(revenueRollupStateRepository.findById(RevenueRollupState.ID).orElseThrow().getRebuiltAt())
+                .isNotNull();
+    }
+
+    @Test
+    void paymentUpdatesWaitForARebuildInProgress() throws Exception {
+        recordPayment(0);
+        CountDownLatch rebuildLocked = new CountDownLatch(1);
+        CountDownLatch finishRebuild = new CountDownLatch(1);
+
+        // Holds the state row the way rebuild() does, until told to finish
+        CompletableFuture<Integer> rebuild = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            revenueRollupStateRepository.findForUpdate(RevenueRollupState.ID);
+            rebuildLocked.countDown();
+            await(finishRebuild);
+            return revenueRollupService.rebuild();
+        }));
+        rebuildLocked.await(10, TimeUnit.SECONDS);
+
+        CompletableFuture<Void> update = CompletableFuture.runAsync(() -> recordPayment(1));
+        Thread.sleep(300);
+        assertThat(update).isNotDone();
+
+        finishRebuild.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+        update.get(10, TimeUnit.SECONDS);
+
+        // The update landed after the rebuild, on top of its rows, and was counted once
+        assertThat(doctorBucket().getPaymentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentRefundsOfOnePaymentTakeTheRevenueOffOnce() throws Exception {
+        Payment payment = recordPayment(0);
+        CountDownLatch paymentLocked = new CountDownLatch(1);
+        CountDownLatch releasePayment = new CountDownLatch(1);
+
+        // Holds the payment row so that both refunds are waiting on it when it is released
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            paymentRepository.findForUpdate(payment.getId());
+            paymentLocked.countDown();
+            await(releasePayment);
+        }));
+        paymentLocked.await(10, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Payment>> refunds = List.of(
+                CompletableFuture.supplyAsync(() -> paymentService.refundPayment(payment.getId(), "first")),
+                CompletableFuture.supplyAsync(() -> paymentService.refundPayment(payment.getId(), "second")));
+        Thread.sleep(300);
+        assertThat(refunds).noneMatch(CompletableFuture::isDone);
+
+        releasePayment.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        CompletableFuture.allOf(refunds.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .get(10, TimeUnit.SECONDS);
+
+        // The second refund saw the first one's REFUNDED status and was turned away
+        assertThat(refunds).filteredOn(CompletableFuture::isCompletedExceptionally).hasSize(1);
+        assertThatThrownBy(() -> refunds.stream().filter(CompletableFuture::isCompletedExceptionally)
+                .findFirst().orElseThrow().join())
+                .hasRootCauseMessage("Only successful payments can be refunded");
+
+        RevenueRollup bucket = doctorBucket();
+        assertThat(bucket.getSuccessCount()).isZero();
+        assertThat(bucket.getRevenue()).isZero();
+        assertThat(bucket.getRefundCount()).isEqualTo(1);
+        assertThat(bucket.getRefundAmount()).isEqualTo(payment.getTotalAmount());
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private Payment recordPayment(int index) {
+        return transactionTemplate.execute(status -> {
+            Patient patient = patientRepository.save(TestEntities.patient());
+            Appointment appointment = appointmentRepository.save(TestEntities.appointment(
+                    patient, doctor, treatment, LocalDate.now().plusDays(90), LocalTime.of(9, index)));
+            Payment payment = paymentRepository.save(TestEntities.payment(appointment, PaymentStatus.SUCCESS));
+            revenueRollupService.apply(null, PaymentSnapshot.of(payment));
+            return payment;
+        });
+    }
+
+    private RevenueRollup doctorBucket() {
+        return revenueRollupService.getSummary(RollupPeriod.MONTH, LocalDate.now())
+                .get(RollupDimension.DOCTOR).get(String.valueOf(doctor.getId()));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}